@@ -1,534 +1,6333 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.Timespan;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import tester.Tester;
 import javalib.impworld.*;
 import java.awt.Color;
 import javalib.worldimages.*;
 
-// Represents a single square of the game area
-class Cell {
-  // In logical coordinates, with the origin at the top-left corner of the screen
-  int x;
-  int y;
-  Color color;
-  boolean flooded;
+// Represents the cells of a square game board, each one addressed by its index in
+// row-major order
+interface Board {
+  // returns the number of cells along one side of this board
+  int sideLength();
 
-  // the four adjacent cells to this one
-  Cell left;
-  Cell top;
-  Cell right;
-  Cell bottom;
+  // returns the number of cells on this board
+  int size();
 
-  Cell(Color color) {
-    this.color = color;
-    this.flooded = false;
+  // returns the index of the cell at the given row and column
+  int index(int row, int column);
+
+  // returns the row of the cell at the given index
+  int row(int index);
+
+  // returns the column of the cell at the given index
+  int column(int index);
+
+  // returns the color index of the cell at the given index
+  int color(int index);
+
+  // EFFECT: sets the color index of the cell at the given index
+  void setColor(int index, int color);
+
+  // returns true if the cell at the given index is flooded
+  boolean isFlooded(int index);
+
+  // EFFECT: floods the cell at the given index
+  void flood(int index);
+
+  // EFFECT: unfloods the cell at the given index
+  void unflood(int index);
+
+  // returns true if the cell at the given index is not flooded but a cell next to it
+  // is
+  boolean bordersFlood(int index);
+
+  // returns the number of flooded cells
+  int floodedCount();
+
+  // returns the number of cells of the given color that are not flooded yet
+  int remaining(int color);
+
+  // returns the number of colors that some unflooded cell still has
+  int colorsRemaining();
+
+  // EFFECT: gives every cell the color at its index in the given array and unfloods
+  // every cell
+  void load(byte[] colors);
+
+  // returns the array this board keeps the color index of every cell in, in row-major
+  // order, so that a whole board can be written in place before recount is called
+  byte[] cellColors();
+
+  // EFFECT: unfloods every cell and counts the colors again, after they were written
+  // straight into the cell colors
+  void recount();
+
+  // EFFECT: sets the bit of every cell in the mask of its color, with each row
+  // starting at the next of every given number of words
+  void maskColors(long[][] masks, int stride);
+
+  // returns the index of the cell left of the given one, or -1 if there is none
+  int left(int index);
+
+  // returns the index of the cell right of the given one, or -1 if there is none
+  int right(int index);
+
+  // returns the index of the cell above the given one, or -1 if there is none
+  int top(int index);
+
+  // returns the index of the cell below the given one, or -1 if there is none
+  int bottom(int index);
+}
+
+// A board that packs each cell into one byte of color index and one bit of flood
+// mask, finding neighbors by index arithmetic instead of storing them
+class PackedBoard implements Board {
+  int sideLength;
+
+  // the color index of every cell, in row-major order
+  byte[] colors;
+
+  // one bit per cell, set when the cell is flooded
+  long[] flooded;
+
+  // counts kept up to date by every change, so progress never needs a scan
+  int floodedCount;
+  int[] remaining;
+  int colorsRemaining;
+
+  // a board of the given size where every cell starts with color 0
+  PackedBoard(int sideLength, int numColors) {
+    this.sideLength = sideLength;
+    this.colors = new byte[sideLength * sideLength];
+    this.flooded = new long[(sideLength * sideLength + 63) / 64];
+    this.floodedCount = 0;
+    this.remaining = new int[numColors];
+    this.remaining[0] = this.colors.length;
+    this.colorsRemaining = 1;
   }
 
-  // EFFECT: sets the cell's top cell to the given cell
-  void setTop(Cell top) {
-    this.top = top;
+  public int sideLength() {
+    return this.sideLength;
   }
 
-  // EFFECT: sets the cell's bottom cell to the given cell
-  void setBottom(Cell bottom) {
-    this.bottom = bottom;
+  public int size() {
+    return this.colors.length;
   }
 
-  // EFFECT: sets the cell's left cell to the given cell
-  void setLeft(Cell left) {
-    this.left = left;
+  public int index(int row, int column) {
+    return row * this.sideLength + column;
   }
 
-  // EFFECT: sets the cell's right cell to the given cell
-  void setRight(Cell right) {
-    this.right = right;
+  public int row(int index) {
+    return index / this.sideLength;
   }
 
-  // EFFECT: floods the cell on call
-  void flooded() {
-    this.flooded = true;
+  public int column(int index) {
+    return index % this.sideLength;
   }
 
-  // EFFECT: floods the neighbors of a flooded cell that have the given flood
-  // color
-  void neighborWithColor(Color color) {
-    if (this.flooded) {
-      if (left != null && left.color.equals(color)) {
-        this.left.flooded();
+  // colors are stored unsigned, so a byte holds any of 256 colors
+  public int color(int index) {
+    return this.colors[index] & 0xFF;
+  }
+
+  public void setColor(int index, int color) {
+    if (!this.isFlooded(index)) {
+      this.uncount(this.color(index));
+      this.count(color);
+    }
+    this.colors[index] = (byte) color;
+  }
+
+  public boolean isFlooded(int index) {
+    return (this.flooded[index >>> 6] & (1L << index)) != 0;
+  }
+
+  public void flood(int index) {
+    if (!this.isFlooded(index)) {
+      this.flooded[index >>> 6] |= 1L << index;
+      this.floodedCount++;
+      this.uncount(this.color(index));
+    }
+  }
+
+  public void unflood(int index) {
+    if (this.isFlooded(index)) {
+      this.flooded[index >>> 6] &= ~(1L << index);
+      this.floodedCount--;
+      this.count(this.color(index));
+    }
+  }
+
+  public boolean bordersFlood(int index) {
+    if (this.isFlooded(index)) {
+      return false;
+    }
+    int left = this.left(index);
+    int right = this.right(index);
+    int top = this.top(index);
+    int bottom = this.bottom(index);
+    return left != -1 && this.isFlooded(left) || right != -1 && this.isFlooded(right)
+        || top != -1 && this.isFlooded(top) || bottom != -1 && this.isFlooded(bottom);
+  }
+
+  public int floodedCount() {
+    return this.floodedCount;
+  }
+
+  public int remaining(int color) {
+    return this.remaining[color];
+  }
+
+  public int colorsRemaining() {
+    return this.colorsRemaining;
+  }
+
+  public void load(byte[] colors) {
+    System.arraycopy(colors, 0, this.colors, 0, this.colors.length);
+    this.recount();
+  }
+
+  public byte[] cellColors() {
+    return this.colors;
+  }
+
+  public void recount() {
+    Arrays.fill(this.flooded, 0);
+    this.floodedCount = 0;
+    Arrays.fill(this.remaining, 0);
+    ColorScan.count(this.colors, this.remaining);
+    this.colorsRemaining = 0;
+    for (int color = 0; color < this.remaining.length; color++) {
+      if (this.remaining[color] > 0) {
+        this.colorsRemaining++;
+      }
+    }
+  }
+
+  public void maskColors(long[][] masks, int stride) {
+    for (int row = 0; row < this.sideLength; row++) {
+      ColorScan.mask(this.colors, row * this.sideLength, this.sideLength, masks, row * stride);
+    }
+  }
+
+  // EFFECT: counts one more unflooded cell of the given color
+  void count(int color) {
+    if (this.remaining[color] == 0) {
+      this.colorsRemaining++;
+    }
+    this.remaining[color]++;
+  }
+
+  // EFFECT: counts one less unflooded cell of the given color
+  void uncount(int color) {
+    this.remaining[color]--;
+    if (this.remaining[color] == 0) {
+      this.colorsRemaining--;
+    }
+  }
+
+  public int left(int index) {
+    if (index % this.sideLength == 0) {
+      return -1;
+    }
+    return index - 1;
+  }
+
+  public int right(int index) {
+    if (index % this.sideLength == this.sideLength - 1) {
+      return -1;
+    }
+    return index + 1;
+  }
+
+  public int top(int index) {
+    if (index < this.sideLength) {
+      return -1;
+    }
+    return index - this.sideLength;
+  }
+
+  public int bottom(int index) {
+    if (index >= this.colors.length - this.sideLength) {
+      return -1;
+    }
+    return index + this.sideLength;
+  }
+}
+
+// Scans arrays of color indices 64 cells at a time. Eight bytes are read as one long,
+// and each bit of the color indices of 64 cells is gathered into a plane of its own,
+// so that one long of cells of any color is a few ANDs of the planes
+class ColorScan {
+  // reads eight bytes of a byte array as one long, first byte lowest
+  static final VarHandle WORDS = MethodHandles.byteArrayViewVarHandle(long[].class,
+      ByteOrder.LITTLE_ENDIAN);
+
+  static final long ONES = 0x0101010101010101L;
+
+  // the most colors each scan is faster with planes for; past them the planes take
+  // more work than looking at every cell
+  static final int COUNT_COLORS = 4;
+  static final int MASK_COLORS = 8;
+
+  // returns the number of planes needed to tell the given number of colors apart
+  static int planeCount(int numColors) {
+    return 32 - Integer.numberOfLeadingZeros(Math.max(1, numColors - 1));
+  }
+
+  // EFFECT: sets each of the given planes to one bit of the color of each of the 64
+  // cells from the given index, the first cell lowest
+  static void planes(byte[] colors, int from, long[] planes) {
+    Arrays.fill(planes, 0);
+    for (int k = 0; k < 8; k++) {
+      long cells = (long) WORDS.get(colors, from + 8 * k);
+      for (int b = 0; b < planes.length; b++) {
+        // moves the low bit of each byte into one byte
+        planes[b] |= ((((cells >>> b) & ONES) * 0x0102040810204080L) >>> 56) << (8 * k);
+      }
+    }
+  }
+
+  // returns one bit for each of the cells of the given planes, set when the cell has
+  // the given color
+  static long select(long[] planes, int color) {
+    long cells = -1L;
+    for (int b = 0; b < planes.length; b++) {
+      if (((color >>> b) & 1) != 0) {
+        cells &= planes[b];
       }
-      if (right != null && right.color.equals(color)) {
-        this.right.flooded();
+      else {
+        cells &= ~planes[b];
       }
-      if (top != null && top.color.equals(color)) {
-        this.top.flooded();
+    }
+    return cells;
+  }
+
+  // EFFECT: adds the number of cells of each color in the given array to its count
+  static void count(byte[] colors, int[] counts) {
+    int i = 0;
+    if (counts.length <= COUNT_COLORS) {
+      long[] planes = new long[ColorScan.planeCount(counts.length)];
+      int last = counts.length - 1;
+      int others = 0;
+      for (; i + 64 <= colors.length; i += 64) {
+        ColorScan.planes(colors, i, planes);
+        for (int color = 0; color < last; color++) {
+          int cells = Long.bitCount(ColorScan.select(planes, color));
+          counts[color] += cells;
+          others += cells;
+        }
       }
-      if (bottom != null && bottom.color.equals(color)) {
-        this.bottom.flooded();
+      // every cell scanned that isn't one of the others has the last color
+      counts[last] += i - others;
+    }
+    for (; i < colors.length; i++) {
+      counts[colors[i] & 0xFF]++;
+    }
+  }
+
+  // EFFECT: sets the bits of the given masks, starting at bit 0 of the given word,
+  // for the given number of cells from the given index, each in the mask of its color
+  static void mask(byte[] colors, int from, int length, long[][] masks, int word) {
+    int end = from + length;
+    int i = from;
+    if (masks.length <= MASK_COLORS) {
+      long[] planes = new long[ColorScan.planeCount(masks.length)];
+      for (; i + 64 <= end; i += 64) {
+        ColorScan.planes(colors, i, planes);
+        for (int color = 0; color < masks.length; color++) {
+          masks[color][word + ((i - from) >>> 6)] |= ColorScan.select(planes, color);
+        }
       }
     }
+    for (; i < end; i++) {
+      int bit = i - from;
+      masks[colors[i] & 0xFF][word + (bit >>> 6)] |= 1L << bit;
+    }
   }
 }
 
-// represents the class FloodItWorld
-class FloodItWorld extends World {
-  // All the cells of the game
-  ArrayList<ArrayList<Cell>> board;
+// A growable list of ints, so that lists of cell indices don't box every element
+class IntList {
+  int[] items;
+  int size;
 
-  int sideLength;
+  IntList() {
+    this.items = new int[16];
+    this.size = 0;
+  }
 
-  Random rand;
+  // EFFECT: adds the given item to the end of this list
+  void add(int item) {
+    if (this.size == this.items.length) {
+      this.items = Arrays.copyOf(this.items, this.size * 2);
+    }
+    this.items[this.size] = item;
+    this.size++;
+  }
 
-  final int CELL_SIZE = 25;
-  Color floodColor;
+  // returns the item at the given position
+  int get(int i) {
+    return this.items[i];
+  }
 
-  int numColors;
-  ArrayList<Color> colorOptions = new ArrayList<Color>();
+  // EFFECT: removes every item from this list, keeping its storage
+  void clear() {
+    this.size = 0;
+  }
+}
 
-  WorldScene gameBoard;
-  final int BOARD_POSITION_IN_WINDOW = 250;
+// Floods cells of a board into the flooded region, one move at a time
+interface FloodEngine {
+  // EFFECT: floods every cell connected to the flooded region through cells of the
+  // given color
+  // returns the number of cells absorbed
+  int flood(int color);
 
-  // fields for waterfalling
-  ArrayList<ArrayList<Cell>> propogateOrder;
-  int propogateIndex = 0;
-  int userClicksCount = 0;
-  boolean currentlyWaterfalling = false;
+  // returns true if every cell of the board is flooded
+  boolean allFlooded();
 
-  int maxClicksAllowed;
+  // returns the number of cells that are not flooded but touch a flooded cell, which
+  // are the cells the next move can absorb first
+  int frontier();
 
-  // two arg constructor --- not seeded
-  FloodItWorld(int sideLength, int numColors) {
-    this.sideLength = sideLength;
-    this.numColors = numColors;
+  // returns the flooded regions of the board as a state that can be copied and
+  // flooded on its own without touching the board
+  RegionState regionState();
 
-    this.rand = new Random();
+  // returns a copy of what this engine has flooded so far, to restore later
+  FloodEngine snapshot();
 
-    gameBoard = new WorldScene(500, 500);
+  // EFFECT: unfloods every cell flooded since the given snapshot of this engine was
+  // taken, giving each one back the color it started with
+  void restore(FloodEngine snapshot);
 
-    this.maxClicksAllowed = (int) (this.sideLength + 2 * this.numColors + 3);
-    if (this.maxClicksAllowed < 5) {
-      this.maxClicksAllowed = 5;
-    }
-    if (this.maxClicksAllowed > 100) {
-      this.maxClicksAllowed = 100;
+  // EFFECT: starts over on the given board, flooding the cells connected to the given
+  // start, in the storage this engine already has wherever it is big enough.
+  // Snapshots of the last board can't be restored after this
+  void reset(Board board, int start);
+}
+
+// Labels the same-colored connected regions of a board with union-find, and records
+// which regions touch each other
+class RegionGraph {
+  // the rows labeled together by one task
+  static final int STRIPE_ROWS = 64;
+
+  // boards with fewer cells than this aren't worth labeling across threads
+  static final int PARALLEL_CELLS = 1 << 18;
+
+  // reads, adds to and swaps the entries of an int array shared between threads, as
+  // the parent array and the edge counts are
+  static final VarHandle SHARED = MethodHandles.arrayElementVarHandle(int[].class);
+
+  // the region of every cell
+  int[] regionOf;
+
+  // the number of regions
+  int count;
+
+  // the color and number of cells of every region
+  int[] regionColor;
+  int[] regionSize;
+
+  // the cells of region r are cells[cellStart[r]] up to cells[cellStart[r + 1]]
+  int[] cellStart;
+  int[] cells;
+
+  // the regions touching region r are neighbors[neighborStart[r]] up to
+  // neighbors[neighborStart[r + 1]]
+  int[] neighborStart;
+  int[] neighbors;
+
+  // the union-find parent of every cell while the board is being labeled
+  int[] parent;
+
+  // the first region numbered in each stripe of rows, followed by the number of
+  // regions, which splits the regions into the same stripes as the cells
+  int[] firstRegion;
+
+  // every edge between cells of two regions, from each side, grouped by region while
+  // the neighbors are being connected, and the end of the distinct neighbors of each
+  // region among them once sorted
+  int[] edges;
+  int[] edgeEnd;
+
+  RegionGraph(Board board) {
+    this.relabel(board);
+  }
+
+  // EFFECT: labels the regions of the given board, keeping the arrays of the board
+  // labeled before wherever they are big enough. The arrays indexed by region may be
+  // longer than the number of regions. States and snapshots of the last board share
+  // this graph, so none of them can be used once it is labeled again
+  void relabel(Board board) {
+    boolean parallel = RegionGraph.parallel(board);
+    this.label(board, parallel);
+    this.collectCells();
+    this.connect(board, parallel);
+  }
+
+  // returns true if the given board is large enough to label across threads, and
+  // there is more than one core to label it on, since the edges shared between
+  // stripes are counted atomically, which one core only pays for
+  static boolean parallel(Board board) {
+    return board.size() >= PARALLEL_CELLS && ForkJoinPool.getCommonPoolParallelism() > 1;
+  }
+
+  // returns the number of stripes of rows the given board is labeled in
+  int stripeCount(Board board) {
+    return Math.max(1, (board.sideLength() + STRIPE_ROWS - 1) / STRIPE_ROWS);
+  }
+
+  // returns the given array if it holds at least the given number of ints, or else a
+  // new array of an eighth more than that, so that the next few boards fit in it too
+  static int[] atLeast(int[] array, int length) {
+    if (array == null || array.length < length) {
+      return new int[length + (length >> 3)];
     }
+    return array;
   }
 
-  // two arg constructor -- seeded
-  FloodItWorld(int sideLength, int numColors, int seed) {
-    this(sideLength, numColors);
-    this.rand = new Random(seed);
+  // EFFECT: labels the regions of the given board, on every core if it is large
+  void label(Board board) {
+    this.label(board, RegionGraph.parallel(board));
+  }
 
+  // EFFECT: joins every cell with its right and bottom neighbors in the same stripe of
+  // rows when they belong to the same region, then joins the stripes across the seams
+  // between them, then numbers the resulting sets as regions in row-major order of
+  // their first cell. Each step works on all stripes at once if asked to
+  void label(Board board, boolean parallel) {
+    int stripes = this.stripeCount(board);
+    if (this.regionOf == null || this.regionOf.length != board.size()) {
+      this.regionOf = new int[board.size()];
+      this.parent = new int[board.size()];
+      this.cells = new int[board.size()];
+    }
+    int[] parent = this.parent;
+    this.stripes(stripes, parallel).forEach(s -> this.joinStripe(board, parent, s));
+    this.stripes(stripes - 1, parallel).forEach(s -> this.joinSeam(board, parent, s + 1));
+
+    // every root is the lowest index in its set, so numbering the roots of each stripe
+    // on from the roots of the stripes above it numbers them in row-major order
+    this.firstRegion = RegionGraph.atLeast(this.firstRegion, stripes + 1);
+    int[] firstRegion = this.firstRegion;
+    firstRegion[0] = 0;
+    this.stripes(stripes, parallel).forEach(s -> firstRegion[s + 1] = this.countRoots(board,
+        parent, s));
+    for (int s = 0; s < stripes; s++) {
+      firstRegion[s + 1] += firstRegion[s];
+    }
+    this.count = firstRegion[stripes];
+    this.regionColor = RegionGraph.atLeast(this.regionColor, this.count);
+    this.stripes(stripes, parallel).forEach(s -> this.numberStripe(board, parent, s,
+        firstRegion[s]));
+    this.stripes(stripes, parallel).forEach(s -> this.numberAcrossSeams(board, s));
   }
 
-  // EFFECT: inits color options
-  void initColors() {
-    for (int i = 0; i < this.numColors; i++) {
-      int r = this.rand.nextInt(256);
-      int g = this.rand.nextInt(256);
-      int b = this.rand.nextInt(256);
-      Color newColor = new Color(r, g, b);
-      this.colorOptions.add(newColor);
-      System.out.println(r + " " + g + " " + b);
+  // returns the numbers of the given count of stripes, to be worked on at once if
+  // asked to
+  IntStream stripes(int count, boolean parallel) {
+    IntStream stripes = IntStream.range(0, count);
+    if (parallel) {
+      stripes = stripes.parallel();
     }
+    return stripes;
   }
 
-  // EFFECT: inits cell neighbors
-  void initNeighbors() {
-    for (int i = 0; i < board.size(); i++) {
-      for (int j = 0; j < board.get(i).size(); j++) {
-        // this cell
-        Cell cell = board.get(i).get(j);
+  // returns the index of the first cell of the given stripe of the given board
+  int stripeStart(Board board, int stripe) {
+    return Math.min(board.size(), stripe * STRIPE_ROWS * board.sideLength());
+  }
 
-        // Assign top neighbor
-        if (i > 0) {
-          cell.setTop(board.get(i - 1).get(j));
-        }
+  // EFFECT: joins every cell of the given stripe with its right and bottom neighbors
+  // in the stripe when they belong to the same region
+  void joinStripe(Board board, int[] parent, int stripe) {
+    int start = this.stripeStart(board, stripe);
+    int end = this.stripeStart(board, stripe + 1);
+    for (int i = start; i < end; i++) {
+      parent[i] = i;
+    }
+    for (int i = start; i < end; i++) {
+      int right = board.right(i);
+      if (right != -1 && this.sameRegion(board, i, right)) {
+        this.union(parent, i, right);
+      }
+      int bottom = board.bottom(i);
+      if (bottom != -1 && bottom < end && this.sameRegion(board, i, bottom)) {
+        this.union(parent, i, bottom);
+      }
+    }
+  }
 
-        // Assign bottom neighbor
-        if (i < board.size() - 1) {
-          cell.setBottom(board.get(i + 1).get(j));
-        }
+  // EFFECT: joins every cell of the first row of the given stripe with the cell above
+  // it when they belong to the same region, while other seams are being joined too
+  void joinSeam(Board board, int[] parent, int stripe) {
+    int start = this.stripeStart(board, stripe);
+    for (int i = start; i < start + board.sideLength(); i++) {
+      int top = board.top(i);
+      if (this.sameRegion(board, top, i)) {
+        this.unionShared(parent, top, i);
+      }
+    }
+  }
 
-        // Assign left neighbor
-        if (j > 0) {
-          cell.setLeft(board.get(i).get(j - 1));
-        }
+  // returns the number of sets whose root is in the given stripe
+  int countRoots(Board board, int[] parent, int stripe) {
+    int roots = 0;
+    for (int i = this.stripeStart(board, stripe); i < this.stripeStart(board, stripe
+        + 1); i++) {
+      if (parent[i] == i) {
+        roots++;
+      }
+    }
+    return roots;
+  }
 
-        // Assign right neighbor
-        if (j < board.get(i).size() - 1) {
-          cell.setRight(board.get(i).get(j + 1));
-        }
+  // EFFECT: numbers the roots in the given stripe as regions in row-major order from
+  // the given region, recording the color of each, and gives every other cell the
+  // region of its root if the root is in this stripe too. A cell whose root is in a
+  // stripe above, which may not be numbered yet, is given -1 minus its root instead
+  void numberStripe(Board board, int[] parent, int stripe, int firstRegion) {
+    int start = this.stripeStart(board, stripe);
+    int region = firstRegion;
+    for (int i = start; i < this.stripeStart(board, stripe + 1); i++) {
+      int root = this.findShared(parent, i);
+      if (root == i) {
+        this.regionOf[i] = region;
+        this.regionColor[region] = board.color(i);
+        region++;
+      }
+      else if (root >= start) {
+        this.regionOf[i] = this.regionOf[root];
+      }
+      else {
+        this.regionOf[i] = -1 - root;
       }
     }
+  }
 
-    // checks if the list of cell neighbors starts off with neighboring same colors
-    for (ArrayList<Cell> row : this.board) {
-      for (Cell cell : row) {
-        cell.neighborWithColor(this.floodColor);
+  // EFFECT: gives every cell of the given stripe whose root is in a stripe above the
+  // region of its root
+  void numberAcrossSeams(Board board, int stripe) {
+    for (int i = this.stripeStart(board, stripe); i < this.stripeStart(board, stripe
+        + 1); i++) {
+      if (this.regionOf[i] < 0) {
+        this.regionOf[i] = this.regionOf[-1 - this.regionOf[i]];
       }
     }
   }
 
-  // EFFECT: initializes the board with a user given size, populating each with a
-  // new cell
-  // of a random color
-  void initBoard() {
-    this.initColors();
-    this.board = new ArrayList<ArrayList<Cell>>();
-    // 2d loops to populate table array
-    for (int i = 0; i < this.sideLength; i++) {
-      ArrayList<Cell> row = new ArrayList<Cell>();
-      for (int j = 0; j < this.sideLength; j++) {
-        Color randomCellColor = this.colorOptions.get(rand.nextInt(this.numColors));
-        Cell randomCell = new Cell(randomCellColor);
-        row.add(randomCell);
+  // returns true if the two given touching cells belong to the same region, either
+  // because both are already flooded, which lets a board part way through a game be
+  // labeled even while the waterfall is still recoloring the flooded cells, or
+  // because neither is and they have the same color. A flooded cell can be left with
+  // the color of an unflooded neighbor while a move is taken back, so the two are
+  // never one region
+  boolean sameRegion(Board board, int a, int b) {
+    boolean flooded = board.isFlooded(a);
+    if (flooded != board.isFlooded(b)) {
+      return false;
+    }
+    return flooded || board.color(a) == board.color(b);
+  }
+
+  // returns the root of the set containing the given cell, halving the path to it
+  int find(int[] parent, int cell) {
+    while (parent[cell] != cell) {
+      parent[cell] = parent[parent[cell]];
+      cell = parent[cell];
+    }
+    return cell;
+  }
+
+  // EFFECT: merges the sets containing the two given cells under the lower root
+  void union(int[] parent, int a, int b) {
+    int rootA = this.find(parent, a);
+    int rootB = this.find(parent, b);
+    if (rootA < rootB) {
+      parent[rootB] = rootA;
+    }
+    else if (rootB < rootA) {
+      parent[rootA] = rootB;
+    }
+  }
+
+  // returns the root of the set containing the given cell while other threads may be
+  // merging sets, halving the path with compare-and-set so that only a link that is
+  // still there gets shortened
+  int findShared(int[] parent, int cell) {
+    while (true) {
+      int up = (int) SHARED.getVolatile(parent, cell);
+      if (up == cell) {
+        return cell;
+      }
+      int above = (int) SHARED.getVolatile(parent, up);
+      if (above != up) {
+        SHARED.compareAndSet(parent, cell, up, above);
       }
-      board.add(row);
+      cell = above;
     }
+  }
 
-    // set starting cell flood color
-    // and set the first cell to already be flooded
-    this.floodColor = this.board.get(0).get(0).color;
-    this.board.get(0).get(0).flooded();
+  // EFFECT: merges the sets containing the two given cells under the lower root while
+  // other threads may be merging sets, starting over whenever the higher root gets
+  // merged somewhere else first
+  void unionShared(int[] parent, int a, int b) {
+    while (true) {
+      int rootA = this.findShared(parent, a);
+      int rootB = this.findShared(parent, b);
+      if (rootA == rootB) {
+        return;
+      }
+      int low = Math.min(rootA, rootB);
+      int high = Math.max(rootA, rootB);
+      if (SHARED.compareAndSet(parent, high, high, low)) {
+        return;
+      }
+    }
+  }
+
+  // EFFECT: groups the cells by region, in row-major order within each region
+  void collectCells() {
+    this.regionSize = RegionGraph.atLeast(this.regionSize, this.count);
+    Arrays.fill(this.regionSize, 0, this.count, 0);
+    for (int region : this.regionOf) {
+      this.regionSize[region]++;
+    }
+
+    // each region starts out at its end and is filled in from the back, which leaves
+    // it at its start
+    this.cellStart = RegionGraph.atLeast(this.cellStart, this.count + 1);
+    int end = 0;
+    for (int r = 0; r < this.count; r++) {
+      end += this.regionSize[r];
+      this.cellStart[r] = end;
+    }
+    this.cellStart[this.count] = end;
+    for (int i = this.regionOf.length - 1; i >= 0; i--) {
+      this.cellStart[this.regionOf[i]]--;
+      this.cells[this.cellStart[this.regionOf[i]]] = i;
+    }
+  }
+
+  // EFFECT: records every pair of touching regions once in each direction, in order
+  // within each region, on every core if the board is large
+  void connect(Board board) {
+    this.connect(board, RegionGraph.parallel(board));
+  }
 
-    this.propogateOrder = this.propogateOrder();
+  // EFFECT: records every pair of touching regions once in each direction, in order
+  // within each region. The edges from the cells of each stripe are counted for both
+  // of their regions, and then filled in, at once for all stripes if asked to. The
+  // regions of each stripe then sort their edges and drop the repeats, and every
+  // stripe copies what is left on from the neighbors of the stripes before it
+  void connect(Board board, boolean parallel) {
+    int stripes = this.stripeCount(board);
+    int[] firstRegion = this.firstRegion;
+    this.neighborStart = RegionGraph.atLeast(this.neighborStart, this.count + 1);
+    this.edgeEnd = RegionGraph.atLeast(this.edgeEnd, this.count);
+    this.stripes(stripes, parallel).forEach(s -> Arrays.fill(this.neighborStart,
+        firstRegion[s], firstRegion[s + 1], 0));
+    this.stripes(stripes, parallel).forEach(s -> this.countEdges(board, s, parallel));
+
+    // each region starts out at the end of its edges, which are filled in from the
+    // back, leaving it at their start
+    int[] firstEdge = new int[stripes + 1];
+    this.stripes(stripes, parallel).forEach(s -> firstEdge[s + 1] = this.sum(this.neighborStart,
+        firstRegion[s], firstRegion[s + 1]));
+    for (int s = 0; s < stripes; s++) {
+      firstEdge[s + 1] += firstEdge[s];
+    }
+    this.stripes(stripes, parallel).forEach(s -> this.endEdges(s, firstEdge[s]));
+    this.neighborStart[this.count] = firstEdge[stripes];
+    this.edges = RegionGraph.atLeast(this.edges, firstEdge[stripes]);
+    this.stripes(stripes, parallel).forEach(s -> this.fillEdges(board, s, parallel));
+
+    // sorting each region's edges puts the repeats together to be dropped
+    this.stripes(stripes, parallel).forEach(s -> this.dropRepeats(s));
+    int[] firstNeighbor = new int[stripes + 1];
+    this.stripes(stripes, parallel).forEach(s -> firstNeighbor[s + 1] = this.distinct(s));
+    for (int s = 0; s < stripes; s++) {
+      firstNeighbor[s + 1] += firstNeighbor[s];
+    }
+    this.neighbors = RegionGraph.atLeast(this.neighbors, firstNeighbor[stripes]);
+    this.stripes(stripes, parallel).forEach(s -> this.copyNeighbors(s, firstNeighbor[s]));
+    this.neighborStart[this.count] = firstNeighbor[stripes];
   }
 
-  // returns arraylist with pattern for propogation -- responsible for waterfall
-  // animation order
-  ArrayList<ArrayList<Cell>> propogateOrder() {
-    ArrayList<ArrayList<Cell>> propOrder = new ArrayList<ArrayList<Cell>>();
+  // returns the sum of the given array from the given start up to the given end
+  int sum(int[] array, int start, int end) {
+    int sum = 0;
+    for (int i = start; i < end; i++) {
+      sum += array[i];
+    }
+    return sum;
+  }
 
-    for (int i = 0; i < this.sideLength; i++) {
-      // get all row items add them to list
-      ArrayList<Cell> radiusCells = new ArrayList<Cell>();
-      for (int j = 0; j <= i; j++) {
-        if (j == i) {
-          radiusCells.add(this.board.get(i).get(j));
-        }
-        else {
-          radiusCells.add(this.board.get(i).get(j));
-          radiusCells.add(this.board.get(j).get(i));
+  // EFFECT: counts the edges from the cells of the given stripe to their right and
+  // bottom neighbors for both of their regions, while other stripes are counted too if
+  // the counts are shared
+  void countEdges(Board board, int stripe, boolean shared) {
+    for (int i = this.stripeStart(board, stripe); i < this.stripeStart(board, stripe
+        + 1); i++) {
+      this.countEdge(i, board.right(i), shared);
+      this.countEdge(i, board.bottom(i), shared);
+    }
+  }
+
+  // EFFECT: counts the edge between the regions of the two given cells for each of
+  // them if the second cell exists and is in a different region
+  void countEdge(int cell, int other, boolean shared) {
+    if (other != -1 && this.regionOf[cell] != this.regionOf[other]) {
+      this.addCount(this.regionOf[cell], 1, shared);
+      this.addCount(this.regionOf[other], 1, shared);
+    }
+  }
+
+  // EFFECT: adds the given amount to the edge count of the given region, atomically if
+  // the counts are shared
+  // returns the count before
+  int addCount(int region, int amount, boolean shared) {
+    if (shared) {
+      return (int) SHARED.getAndAdd(this.neighborStart, region, amount);
+    }
+    int count = this.neighborStart[region];
+    this.neighborStart[region] = count + amount;
+    return count;
+  }
+
+  // EFFECT: turns the edge counts of the regions of the given stripe into the end of
+  // their edges, on from the given first edge of the stripe
+  void endEdges(int stripe, int firstEdge) {
+    int end = firstEdge;
+    for (int r = this.firstRegion[stripe]; r < this.firstRegion[stripe + 1]; r++) {
+      end += this.neighborStart[r];
+      this.neighborStart[r] = end;
+    }
+  }
+
+  // EFFECT: adds the edges from the cells of the given stripe to their right and
+  // bottom neighbors to both of their regions, while other stripes are filled too if
+  // the counts are shared
+  void fillEdges(Board board, int stripe, boolean shared) {
+    for (int i = this.stripeStart(board, stripe); i < this.stripeStart(board, stripe
+        + 1); i++) {
+      this.addEdge(i, board.right(i), shared);
+      this.addEdge(i, board.bottom(i), shared);
+    }
+  }
+
+  // EFFECT: adds the edge between the regions of the two given cells to each of them
+  // if the second cell exists and is in a different region, in the next free place
+  // from the back of their edges
+  void addEdge(int cell, int other, boolean shared) {
+    if (other != -1 && this.regionOf[cell] != this.regionOf[other]) {
+      int from = this.regionOf[cell];
+      int to = this.regionOf[other];
+      this.edges[this.addCount(from, -1, shared) - 1] = to;
+      this.edges[this.addCount(to, -1, shared) - 1] = from;
+    }
+  }
+
+  // EFFECT: sorts the edges of every region of the given stripe and moves each
+  // neighbor once to the front of them, recording where those end
+  void dropRepeats(int stripe) {
+    for (int r = this.firstRegion[stripe]; r < this.firstRegion[stripe + 1]; r++) {
+      int start = this.neighborStart[r];
+      int end = this.neighborStart[r + 1];
+      Arrays.sort(this.edges, start, end);
+      int write = start;
+      for (int e = start; e < end; e++) {
+        if (e == start || this.edges[e] != this.edges[e - 1]) {
+          this.edges[write] = this.edges[e];
+          write++;
         }
       }
-      propOrder.add(radiusCells);
+      this.edgeEnd[r] = write;
     }
+  }
 
-    return propOrder;
+  // returns the number of distinct neighbors of the regions of the given stripe
+  int distinct(int stripe) {
+    int distinct = 0;
+    for (int r = this.firstRegion[stripe]; r < this.firstRegion[stripe + 1]; r++) {
+      distinct += this.edgeEnd[r] - this.neighborStart[r];
+    }
+    return distinct;
   }
 
-  // returns true if the whole board is flooded
-  boolean wholeBoardFlooded() {
-    boolean allFlooded = true;
+  // EFFECT: copies the distinct neighbors of the regions of the given stripe into the
+  // neighbors, on from the given first neighbor of the stripe
+  void copyNeighbors(int stripe, int firstNeighbor) {
+    int write = firstNeighbor;
+    for (int r = this.firstRegion[stripe]; r < this.firstRegion[stripe + 1]; r++) {
+      int distinct = this.edgeEnd[r] - this.neighborStart[r];
+      System.arraycopy(this.edges, this.neighborStart[r], this.neighbors, write, distinct);
+      this.neighborStart[r] = write;
+      write += distinct;
+    }
+  }
+}
+
+// The flooded regions of a region graph, along with the regions bordering them
+class RegionState {
+  RegionGraph graph;
+
+  // one bit per region, set when the region is flooded
+  long[] flooded;
+
+  // one bit per region, set when the region is not flooded but touches one that is
+  long[] boundary;
+
+  int floodedCells;
+
+  RegionState(RegionGraph graph, int start) {
+    this.graph = graph;
+    this.flooded = new long[(graph.count + 63) / 64];
+    this.boundary = new long[(graph.count + 63) / 64];
+    this.floodedCells = 0;
+    this.floodRegion(start);
+  }
+
+  RegionState(RegionGraph graph, long[] flooded, long[] boundary, int floodedCells) {
+    this.graph = graph;
+    this.flooded = flooded;
+    this.boundary = boundary;
+    this.floodedCells = floodedCells;
+  }
+
+  // EFFECT: starts over with only the given region of the graph flooded, after the
+  // graph was labeled again, keeping the bits of the last board if there are enough
+  void reset(int start) {
+    int words = (this.graph.count + 63) / 64;
+    if (this.flooded.length < words) {
+      this.flooded = new long[words];
+      this.boundary = new long[words];
+    }
+    else {
+      Arrays.fill(this.flooded, 0);
+      Arrays.fill(this.boundary, 0);
+    }
+    this.floodedCells = 0;
+    this.floodRegion(start);
+  }
+
+  // returns true if the given region is flooded
+  boolean isFlooded(int region) {
+    return (this.flooded[region >>> 6] & (1L << region)) != 0;
+  }
 
-    for (ArrayList<Cell> row : this.board) {
-      for (Cell cell : row) {
-        if (!cell.flooded) {
-          allFlooded = false;
+  // EFFECT: floods every boundary region with the given color, adding each one to
+  // the given list
+  // returns the number of cells absorbed
+  int absorb(int color, IntList absorbed) {
+    // touching regions never share a color, so no absorbed region can lead on to
+    // another one in the same move
+    int before = this.floodedCells;
+    for (int w = 0; w < this.boundary.length; w++) {
+      long bits = this.boundary[w];
+      while (bits != 0) {
+        int region = (w << 6) + Long.numberOfTrailingZeros(bits);
+        bits &= bits - 1;
+        if (this.graph.regionColor[region] == color) {
+          this.floodRegion(region);
+          absorbed.add(region);
         }
       }
     }
-    return allFlooded;
+    return this.floodedCells - before;
   }
 
-  // draws board in its current state
-  WorldImage drawBoard() {
-    WorldImage tempBoard = new EmptyImage();
-    for (ArrayList<Cell> row : this.board) {
-      WorldImage rowImage = new EmptyImage();
-      for (Cell cell : row) {
-        WorldImage cellImage = new RectangleImage(this.CELL_SIZE, this.CELL_SIZE, OutlineMode.SOLID,
-            cell.color);
-        rowImage = new BesideImage(rowImage, cellImage);
+  // EFFECT: floods the given region and adds its unflooded neighbors to the
+  // boundary
+  void floodRegion(int region) {
+    this.flooded[region >>> 6] |= 1L << region;
+    this.boundary[region >>> 6] &= ~(1L << region);
+    this.floodedCells += this.graph.regionSize[region];
+    for (int n = this.graph.neighborStart[region]; n < this.graph.neighborStart[region
+        + 1]; n++) {
+      int neighbor = this.graph.neighbors[n];
+      if (!this.isFlooded(neighbor)) {
+        this.boundary[neighbor >>> 6] |= 1L << neighbor;
       }
-      tempBoard = new AboveImage(tempBoard, rowImage);
     }
-    return tempBoard;
   }
 
-  // creates image of flood it world
-  public WorldScene makeScene() {
-    this.onTick();
-    gameBoard.placeImageXY(new TextImage("Flood It", 30, Color.black), 250, 40);
-    gameBoard.placeImageXY(new RectangleImage(100, 100, OutlineMode.SOLID, Color.white), 250, 450);
-    gameBoard.placeImageXY(
-        new TextImage(this.userClicksCount + "/" + this.maxClicksAllowed, 30, Color.black), 250,
-        450);
-    gameBoard.placeImageXY(this.drawBoard(), this.BOARD_POSITION_IN_WINDOW,
-        this.BOARD_POSITION_IN_WINDOW);
-    return gameBoard;
+  // returns true if every region is flooded
+  boolean allFlooded() {
+    return this.floodedCells == this.graph.regionOf.length;
+  }
+
+  // returns the number of cells each color would absorb, indexed by color
+  int[] gains(int numColors) {
+    int[] gains = new int[numColors];
+    for (int w = 0; w < this.boundary.length; w++) {
+      long bits = this.boundary[w];
+      while (bits != 0) {
+        int region = (w << 6) + Long.numberOfTrailingZeros(bits);
+        bits &= bits - 1;
+        gains[this.graph.regionColor[region]] += this.graph.regionSize[region];
+      }
+    }
+    return gains;
+  }
+
+  // returns the number of cells in the regions bordering the flooded ones
+  int boundaryCells() {
+    int cells = 0;
+    for (int w = 0; w < this.boundary.length; w++) {
+      long bits = this.boundary[w];
+      while (bits != 0) {
+        cells += this.graph.regionSize[(w << 6) + Long.numberOfTrailingZeros(bits)];
+        bits &= bits - 1;
+      }
+    }
+    return cells;
+  }
+
+  // returns a copy of this state that can be flooded independently
+  RegionState copy() {
+    return new RegionState(this.graph, this.flooded.clone(), this.boundary.clone(),
+        this.floodedCells);
+  }
+}
+
+// An immutable set of bits kept in chunks of 512. A changed copy shares every chunk
+// it didn't change with the set it came from, so it costs one reference per chunk
+// and a copy of only the chunks that changed
+final class ChunkedBits {
+  static final int CHUNK_SHIFT = 9;
+  static final int CHUNK_WORDS = 8;
+
+  // the chunk every set starts out sharing, which is never written to
+  static final long[] EMPTY = new long[CHUNK_WORDS];
+
+  final long[][] chunks;
+
+  // the number of bits set
+  final int count;
+
+  // an empty set with room for the given number of bits
+  ChunkedBits(int size) {
+    this.chunks = new long[(size + (1 << CHUNK_SHIFT) - 1) >>> CHUNK_SHIFT][];
+    Arrays.fill(this.chunks, EMPTY);
+    this.count = 0;
+  }
+
+  ChunkedBits(long[][] chunks, int count) {
+    this.chunks = chunks;
+    this.count = count;
+  }
+
+  // returns a set of the given bits, one per bit of the given words, sharing the
+  // empty chunk wherever none of them are set
+  static ChunkedBits of(long[] words, int size) {
+    ChunkedBits empty = new ChunkedBits(size);
+    long[][] chunks = empty.chunks;
+    int count = 0;
+    for (int c = 0; c < chunks.length; c++) {
+      int from = c * CHUNK_WORDS;
+      int to = Math.min(words.length, from + CHUNK_WORDS);
+      for (int w = from; w < to; w++) {
+        if (words[w] != 0) {
+          if (chunks[c] == EMPTY) {
+            chunks[c] = new long[CHUNK_WORDS];
+          }
+          chunks[c][w - from] = words[w];
+          count += Long.bitCount(words[w]);
+        }
+      }
+    }
+    return new ChunkedBits(chunks, count);
+  }
+
+  // returns true if the given bit is set
+  boolean get(int bit) {
+    return (this.chunks[bit >>> CHUNK_SHIFT][(bit >>> 6) & (CHUNK_WORDS - 1)] & (1L << bit)) != 0;
+  }
+
+  // returns the first set bit at or after the given one, or -1 if there is none
+  int nextSetBit(int from) {
+    int c = from >>> CHUNK_SHIFT;
+    int w = (from >>> 6) & (CHUNK_WORDS - 1);
+    long bits = 0;
+    if (c < this.chunks.length) {
+      bits = this.chunks[c][w] & (-1L << from);
+    }
+    while (bits == 0) {
+      w++;
+      if (w == CHUNK_WORDS) {
+        w = 0;
+        c++;
+        while (c < this.chunks.length && this.chunks[c] == EMPTY) {
+          c++;
+        }
+      }
+      if (c >= this.chunks.length) {
+        return -1;
+      }
+      bits = this.chunks[c][w];
+    }
+    return (c << CHUNK_SHIFT) + (w << 6) + Long.numberOfTrailingZeros(bits);
+  }
+
+  // returns an editor for a changed copy of this set
+  BitsEditor edit() {
+    return new BitsEditor(this);
+  }
+}
+
+// Builds a changed copy of a ChunkedBits, copying each chunk the first time it
+// changes, and hands the result over as a new set
+class BitsEditor {
+  long[][] chunks;
+  boolean[] copied;
+  int count;
+
+  BitsEditor(ChunkedBits from) {
+    this.chunks = from.chunks.clone();
+    this.copied = new boolean[this.chunks.length];
+    this.count = from.count;
+  }
+
+  // returns true if the given bit is set in the copy
+  boolean get(int bit) {
+    return (this.chunks[bit >>> ChunkedBits.CHUNK_SHIFT][(bit >>> 6)
+        & (ChunkedBits.CHUNK_WORDS - 1)] & (1L << bit)) != 0;
+  }
+
+  // EFFECT: sets the given bit in the copy
+  void set(int bit) {
+    if (!this.get(bit)) {
+      this.writable(bit)[(bit >>> 6) & (ChunkedBits.CHUNK_WORDS - 1)] |= 1L << bit;
+      this.count++;
+    }
+  }
+
+  // EFFECT: clears the given bit in the copy
+  void clear(int bit) {
+    if (this.get(bit)) {
+      this.writable(bit)[(bit >>> 6) & (ChunkedBits.CHUNK_WORDS - 1)] &= ~(1L << bit);
+      this.count--;
+    }
+  }
+
+  // returns the chunk holding the given bit, copied if this editor hasn't yet
+  long[] writable(int bit) {
+    int c = bit >>> ChunkedBits.CHUNK_SHIFT;
+    if (!this.copied[c]) {
+      this.chunks[c] = this.chunks[c].clone();
+      this.copied[c] = true;
+    }
+    return this.chunks[c];
+  }
+
+  // returns the copy as an immutable set
+  // EFFECT: hands the chunks over, so this editor can't be used again
+  ChunkedBits done() {
+    ChunkedBits result = new ChunkedBits(this.chunks, this.count);
+    this.chunks = null;
+    return result;
+  }
+}
+
+// An immutable position of a game, for trying out moves without copying the board.
+// Every state shares the regions of the board, and holds only the flooded regions
+// and, for each color, the unflooded regions of that color touching them. A move
+// finds the regions it absorbs in the set for its color, so playing one costs about
+// as much as what it changes
+final class GameState {
+  final RegionGraph graph;
+  final ChunkedBits flooded;
+  final ChunkedBits[] boundary;
+
+  // the number of cells in each color's boundary regions
+  final int[] gains;
+
+  final int floodedCells;
+  final int moves;
+  final int floodColor;
+
+  GameState(RegionGraph graph, ChunkedBits flooded, ChunkedBits[] boundary, int[] gains,
+      int floodedCells, int moves, int floodColor) {
+    this.graph = graph;
+    this.flooded = flooded;
+    this.boundary = boundary;
+    this.gains = gains;
+    this.floodedCells = floodedCells;
+    this.moves = moves;
+    this.floodColor = floodColor;
+  }
+
+  // the position the given regions are in, before any move has been tried from it
+  static GameState of(RegionState state, int floodColor, int numColors) {
+    RegionGraph graph = state.graph;
+    long[][] words = new long[numColors][state.boundary.length];
+    int[] gains = new int[numColors];
+    for (int w = 0; w < state.boundary.length; w++) {
+      long bits = state.boundary[w];
+      while (bits != 0) {
+        int region = (w << 6) + Long.numberOfTrailingZeros(bits);
+        bits &= bits - 1;
+        words[graph.regionColor[region]][w] |= 1L << region;
+        gains[graph.regionColor[region]] += graph.regionSize[region];
+      }
+    }
+    ChunkedBits[] boundary = new ChunkedBits[numColors];
+    for (int color = 0; color < numColors; color++) {
+      boundary[color] = ChunkedBits.of(words[color], graph.count);
+    }
+    return new GameState(graph, ChunkedBits.of(state.flooded, graph.count), boundary, gains,
+        state.floodedCells, 0, floodColor);
+  }
+
+  // returns true if the given region is flooded
+  boolean isFlooded(int region) {
+    return this.flooded.get(region);
+  }
+
+  // returns true if every region is flooded
+  boolean allFlooded() {
+    return this.floodedCells == this.graph.regionOf.length;
+  }
+
+  // returns the number of cells flooding with the given color would absorb
+  int gain(int color) {
+    return this.gains[color];
+  }
+
+  // returns the number of cells in the regions bordering the flooded ones
+  int boundaryCells() {
+    int cells = 0;
+    for (int color = 0; color < this.gains.length; color++) {
+      cells += this.gains[color];
+    }
+    return cells;
+  }
+
+  // returns the position after flooding with the given color, leaving this one as
+  // it is
+  GameState play(int color) {
+    ChunkedBits absorbing = this.boundary[color];
+    BitsEditor flooded = this.flooded.edit();
+    BitsEditor[] touched = new BitsEditor[this.gains.length];
+    int[] gains = this.gains.clone();
+    gains[color] = 0;
+    int floodedCells = this.floodedCells;
+
+    for (int region = absorbing.nextSetBit(0); region != -1; region = absorbing
+        .nextSetBit(region + 1)) {
+      flooded.set(region);
+      floodedCells += this.graph.regionSize[region];
+
+      // the neighbors of an absorbed region all have other colors, so none of them
+      // is being absorbed too
+      for (int n = this.graph.neighborStart[region]; n < this.graph.neighborStart[region
+          + 1]; n++) {
+        int neighbor = this.graph.neighbors[n];
+        int neighborColor = this.graph.regionColor[neighbor];
+        if (!flooded.get(neighbor)) {
+          if (touched[neighborColor] == null) {
+            touched[neighborColor] = this.boundary[neighborColor].edit();
+          }
+          if (!touched[neighborColor].get(neighbor)) {
+            touched[neighborColor].set(neighbor);
+            gains[neighborColor] += this.graph.regionSize[neighbor];
+          }
+        }
+      }
+    }
+
+    ChunkedBits[] boundary = this.boundary.clone();
+    boundary[color] = new ChunkedBits(this.graph.count);
+    for (int c = 0; c < boundary.length; c++) {
+      if (touched[c] != null) {
+        boundary[c] = touched[c].done();
+      }
+    }
+    return new GameState(this.graph, flooded.done(), boundary, gains, floodedCells,
+        this.moves + 1, color);
+  }
+}
+
+// Floods whole same-colored regions at once, so a move costs time in proportion to
+// the regions on the board rather than its cells
+class RegionFloodEngine implements FloodEngine {
+  Board board;
+  RegionGraph graph;
+  RegionState state;
+
+  // scratch list reused by every move for the regions being absorbed
+  IntList absorbed;
+
+  RegionFloodEngine(Board board, int start) {
+    this.board = board;
+    this.graph = new RegionGraph(board);
+    this.state = new RegionState(this.graph, this.graph.regionOf[start]);
+    this.absorbed = new IntList();
+    this.floodStart(start);
+  }
+
+  // an engine for the given board and regions that has flooded the given state
+  RegionFloodEngine(Board board, RegionGraph graph, RegionState state) {
+    this.board = board;
+    this.graph = graph;
+    this.state = state;
+    this.absorbed = new IntList();
+  }
+
+  // EFFECT: floods the boundary regions of the given color, and marks their cells
+  // flooded on the board
+  // returns the number of cells absorbed
+  public int flood(int color) {
+    this.absorbed.clear();
+    int absorbedCells = this.state.absorb(color, this.absorbed);
+    this.floodCells();
+    return absorbedCells;
+  }
+
+  // EFFECT: marks the cells of the region of the given start flooded on the board,
+  // after the state was started over from it
+  void floodStart(int start) {
+    this.absorbed.clear();
+    this.absorbed.add(this.graph.regionOf[start]);
+    this.floodCells();
+
+    // a start that was already flooded is a region of its own, so the cells of its
+    // color next to it join it like any other move
+    this.flood(this.board.color(start));
+  }
+
+  // the regions and their state are labeled again in the arrays of the last board
+  public void reset(Board board, int start) {
+    this.board = board;
+    this.graph.relabel(board);
+    this.state.reset(this.graph.regionOf[start]);
+    this.floodStart(start);
+  }
+
+  // EFFECT: marks the cells of every absorbed region flooded on the board
+  void floodCells() {
+    for (int i = 0; i < this.absorbed.size; i++) {
+      int region = this.absorbed.get(i);
+      for (int c = this.graph.cellStart[region]; c < this.graph.cellStart[region + 1]; c++) {
+        this.board.flood(this.graph.cells[c]);
+      }
+    }
+  }
+
+  public boolean allFlooded() {
+    return this.state.allFlooded();
+  }
+
+  // only the cells of boundary regions can touch the flooded region
+  public int frontier() {
+    int cells = 0;
+    for (int w = 0; w < this.state.boundary.length; w++) {
+      long bits = this.state.boundary[w];
+      while (bits != 0) {
+        int region = (w << 6) + Long.numberOfTrailingZeros(bits);
+        bits &= bits - 1;
+        for (int c = this.graph.cellStart[region]; c < this.graph.cellStart[region + 1]; c++) {
+          if (this.board.bordersFlood(this.graph.cells[c])) {
+            cells++;
+          }
+        }
+      }
+    }
+    return cells;
+  }
+
+  public RegionState regionState() {
+    return this.state.copy();
+  }
+
+  // the regions never change, so a copy of the flooded and boundary bits is enough
+  public FloodEngine snapshot() {
+    return new RegionFloodEngine(this.board, this.graph, this.state.copy());
+  }
+
+  public void restore(FloodEngine snapshot) {
+    RegionState earlier = ((RegionFloodEngine) snapshot).state;
+    for (int w = 0; w < this.state.flooded.length; w++) {
+      long bits = this.state.flooded[w] & ~earlier.flooded[w];
+      while (bits != 0) {
+        int region = (w << 6) + Long.numberOfTrailingZeros(bits);
+        bits &= bits - 1;
+        for (int c = this.graph.cellStart[region]; c < this.graph.cellStart[region + 1]; c++) {
+          this.board.setColor(this.graph.cells[c], this.graph.regionColor[region]);
+          this.board.unflood(this.graph.cells[c]);
+        }
+      }
+    }
+    this.state = earlier.copy();
+  }
+}
+
+// Floods a board with one mask of bits per color, laid out a row at a time so that
+// each word holds up to 64 cells of one row. A move grows the flooded mask by one
+// cell in every direction, keeps only the cells of its color, and repeats until
+// nothing changes, so every operation handles a whole word of cells at once
+class BitboardFloodEngine implements FloodEngine {
+  Board board;
+  int side;
+
+  // the number of words each row takes up
+  int stride;
+
+  // one mask per color, with a bit set for each cell that started with that color
+  long[][] colorMasks;
+
+  // one bit per cell, set when the cell is flooded
+  long[] flooded;
+
+  // the first and last rows with a flooded cell, since a move can only reach the
+  // rows between them and the one on either side
+  int firstRow;
+  int lastRow;
+
+  int floodedCells;
+
+  // the cell the flood started from, which the labeled regions are flooded from too
+  int start;
+
+  // the regions of the board the last time they were labeled, flooded as far as the
+  // last search, kept until a move is taken back past them
+  RegionState labeled;
+
+  BitboardFloodEngine(Board board, int start, int numColors) {
+    this.board = board;
+    this.side = board.sideLength();
+    this.stride = (this.side + 63) / 64;
+    this.colorMasks = new long[numColors][this.side * this.stride];
+    this.flooded = new long[this.side * this.stride];
+    this.floodStart(start);
+  }
+
+  // an engine for the given board and masks that has flooded the given cells from the
+  // given start
+  BitboardFloodEngine(Board board, long[][] colorMasks, long[] flooded, int firstRow,
+      int lastRow, int floodedCells, int start) {
+    this.board = board;
+    this.side = board.sideLength();
+    this.stride = (this.side + 63) / 64;
+    this.colorMasks = colorMasks;
+    this.flooded = flooded;
+    this.firstRow = firstRow;
+    this.lastRow = lastRow;
+    this.floodedCells = floodedCells;
+    this.start = start;
+  }
+
+  // EFFECT: fills in the cleared masks from the board and floods the cells connected
+  // to the given start
+  void floodStart(int start) {
+    this.start = start;
+    this.board.maskColors(this.colorMasks, this.stride);
+    this.firstRow = this.board.row(start);
+    this.lastRow = this.board.row(start);
+    this.floodedCells = 0;
+    int bit = this.bit(start);
+    this.floodBits(bit >>> 6, 1L << bit);
+    this.flooded[bit >>> 6] |= 1L << bit;
+    this.flood(this.board.color(start));
+  }
+
+  // the masks are cleared and filled again where they are the same size, and the
+  // labeled regions are labeled again in the arrays they already have
+  public void reset(Board board, int start) {
+    this.board = board;
+    this.side = board.sideLength();
+    this.stride = (this.side + 63) / 64;
+    if (this.flooded.length != this.side * this.stride) {
+      this.colorMasks = new long[this.colorMasks.length][this.side * this.stride];
+      this.flooded = new long[this.side * this.stride];
+    }
+    else {
+      for (long[] mask : this.colorMasks) {
+        Arrays.fill(mask, 0);
+      }
+      Arrays.fill(this.flooded, 0);
+    }
+    this.floodStart(start);
+    if (this.labeled != null) {
+      this.labeled.graph.relabel(board);
+      this.labeled.reset(this.labeled.graph.regionOf[start]);
+    }
+  }
+
+  // returns the bit of the masks that holds the cell at the given index
+  int bit(int index) {
+    return this.board.row(index) * this.stride * 64 + this.board.column(index);
+  }
+
+  // returns the index of the cell held by the given bit of the given word
+  int cell(int word, int bit) {
+    return this.board.index(word / this.stride, (word % this.stride) * 64 + bit);
+  }
+
+  // EFFECT: floods every cell connected to the flooded region through cells of the
+  // given color, sweeping down and up the rows near the flood until a sweep floods
+  // nothing more
+  // returns the number of cells absorbed
+  public int flood(int color) {
+    long[] mask = this.colorMasks[color];
+    int before = this.floodedCells;
+    int low = Math.max(0, this.firstRow - 1);
+    int high = Math.min(this.side - 1, this.lastRow + 1);
+    boolean down = true;
+    while (true) {
+      int grewLow = this.side;
+      int grewHigh = -1;
+      for (int i = 0; i <= high - low; i++) {
+        int row = down ? low + i : high - i;
+        if (this.growRow(row, mask)) {
+          grewLow = Math.min(grewLow, row);
+          grewHigh = Math.max(grewHigh, row);
+        }
+      }
+      if (grewHigh == -1) {
+        return this.floodedCells - before;
+      }
+
+      // only rows next to one that grew can grow on the next sweep
+      this.firstRow = Math.min(this.firstRow, grewLow);
+      this.lastRow = Math.max(this.lastRow, grewHigh);
+      low = Math.max(0, grewLow - 1);
+      high = Math.min(this.side - 1, grewHigh + 1);
+      down = !down;
+    }
+  }
+
+  // EFFECT: floods the cells of the given row in the given mask that touch a flooded
+  // cell, until the row floods no more of them
+  // returns true if any cell was flooded
+  boolean growRow(int row, long[] mask) {
+    int start = row * this.stride;
+    int end = start + this.stride;
+    boolean grew = false;
+    boolean changed = true;
+    while (changed) {
+      changed = false;
+      for (int w = start; w < end; w++) {
+        long cells = this.flooded[w];
+        long grown = cells | (this.reach(row, w) & mask[w]);
+
+        // runs of the color within the word fill in without another sweep
+        long spread = grown | (((grown << 1) | (grown >>> 1)) & mask[w]);
+        while (spread != grown) {
+          grown = spread;
+          spread = grown | (((grown << 1) | (grown >>> 1)) & mask[w]);
+        }
+        if (grown != cells) {
+          this.floodBits(w, grown & ~cells);
+          this.flooded[w] = grown;
+          grew = true;
+
+          // a row of one word has nothing to carry to its other words
+          changed = this.stride > 1;
+        }
+      }
+    }
+    return grew;
+  }
+
+  // returns the bits of the given word of the given row next to a flooded cell, in
+  // the word itself, the words beside it or the rows above and below it
+  long reach(int row, int w) {
+    long cells = this.flooded[w];
+    long reach = (cells << 1) | (cells >>> 1);
+    if (w > row * this.stride) {
+      reach |= this.flooded[w - 1] >>> 63;
+    }
+    if (w < (row + 1) * this.stride - 1) {
+      reach |= this.flooded[w + 1] << 63;
+    }
+    if (row > 0) {
+      reach |= this.flooded[w - this.stride];
+    }
+    if (row < this.side - 1) {
+      reach |= this.flooded[w + this.stride];
+    }
+    return reach;
+  }
+
+  // EFFECT: marks the cells of the given bits of the given word flooded on the board
+  void floodBits(int word, long bits) {
+    while (bits != 0) {
+      this.board.flood(this.cell(word, Long.numberOfTrailingZeros(bits)));
+      this.floodedCells++;
+      bits &= bits - 1;
+    }
+  }
+
+  public boolean allFlooded() {
+    return this.floodedCells == this.board.size();
+  }
+
+  // only the rows from the one above the first flooded row to the one below the last
+  // can touch the flood, and the bits past the end of each row hold no cell
+  public int frontier() {
+    long lastWord = -1L >>> (this.stride * 64 - this.side);
+    int cells = 0;
+    for (int row = Math.max(0, this.firstRow - 1); row <= Math.min(this.side - 1,
+        this.lastRow + 1); row++) {
+      for (int w = row * this.stride; w < (row + 1) * this.stride; w++) {
+        long touching = this.reach(row, w) & ~this.flooded[w];
+        if (w == (row + 1) * this.stride - 1) {
+          touching &= lastWord;
+        }
+        cells += Long.bitCount(touching);
+      }
+    }
+    return cells;
+  }
+
+  // labels the regions of the board as it is now, with the flooded cells as one.
+  // Moves only ever absorb whole regions, so once the board is labeled each search
+  // only floods the regions absorbed since the last one instead of labeling it again
+  public RegionState regionState() {
+    if (this.labeled == null) {
+      RegionGraph graph = new RegionGraph(this.board);
+      this.labeled = new RegionState(graph, graph.regionOf[this.start]);
+    }
+    this.catchUp(this.labeled);
+    return this.labeled.copy();
+  }
+
+  // EFFECT: floods the regions of the given state whose cells have been flooded on
+  // the board since, working out from the regions bordering the flooded ones
+  void catchUp(RegionState state) {
+    RegionGraph graph = state.graph;
+    IntList reached = new IntList();
+    for (int w = 0; w < state.boundary.length; w++) {
+      long bits = state.boundary[w];
+      while (bits != 0) {
+        int region = (w << 6) + Long.numberOfTrailingZeros(bits);
+        bits &= bits - 1;
+        if (this.board.isFlooded(graph.cells[graph.cellStart[region]])) {
+          reached.add(region);
+        }
+      }
+    }
+    while (reached.size > 0) {
+      reached.size--;
+      int region = reached.get(reached.size);
+      if (!state.isFlooded(region)) {
+        state.floodRegion(region);
+        for (int n = graph.neighborStart[region]; n < graph.neighborStart[region + 1]; n++) {
+          int neighbor = graph.neighbors[n];
+          if (!state.isFlooded(neighbor)
+              && this.board.isFlooded(graph.cells[graph.cellStart[neighbor]])) {
+            reached.add(neighbor);
+          }
+        }
+      }
+    }
+  }
+
+  // the masks of the colors never change, so a copy of the flooded bits is enough
+  public FloodEngine snapshot() {
+    return new BitboardFloodEngine(this.board, this.colorMasks, this.flooded.clone(),
+        this.firstRow, this.lastRow, this.floodedCells, this.start);
+  }
+
+  public void restore(FloodEngine snapshot) {
+    BitboardFloodEngine earlier = (BitboardFloodEngine) snapshot;
+    for (int w = 0; w < this.flooded.length; w++) {
+      long bits = this.flooded[w] & ~earlier.flooded[w];
+      while (bits != 0) {
+        long bit = bits & -bits;
+        bits &= bits - 1;
+        int cell = this.cell(w, Long.numberOfTrailingZeros(bit));
+        for (int color = 0; color < this.colorMasks.length; color++) {
+          if ((this.colorMasks[color][w] & bit) != 0) {
+            this.board.setColor(cell, color);
+          }
+        }
+        this.board.unflood(cell);
+      }
+    }
+    this.flooded = earlier.flooded.clone();
+    this.firstRow = earlier.firstRow;
+    this.lastRow = earlier.lastRow;
+    this.floodedCells = earlier.floodedCells;
+
+    // the labeled flooded region has cells that aren't flooded any more
+    if (this.labeled != null && this.labeled.floodedCells > this.floodedCells) {
+      this.labeled = null;
+    }
+  }
+}
+
+// The moves of a game, with a snapshot of the flooded regions every few moves, so that
+// undoing, redoing or jumping to any move only replays the moves since the nearest
+// snapshot before it, never the whole game
+class GameHistory {
+  // the number of moves between snapshots
+  int interval;
+
+  // the flood color before the first move
+  int startColor;
+
+  // the color of every move, including undone ones that can still be redone
+  IntList moves;
+
+  // the number of moves the game is at
+  int current;
+
+  // the engine as it was after 0, interval, 2 * interval... moves
+  ArrayList<FloodEngine> snapshots;
+
+  GameHistory(FloodItGame game, int interval) {
+    this.interval = interval;
+    this.moves = new IntList();
+    this.snapshots = new ArrayList<FloodEngine>();
+    this.reset(game);
+  }
+
+  // EFFECT: forgets every move, starting over from where the given game is now
+  void reset(FloodItGame game) {
+    this.startColor = game.floodColor;
+    this.moves.clear();
+    this.current = 0;
+    this.snapshots.clear();
+    this.snapshots.add(game.engine.snapshot());
+  }
+
+  // EFFECT: adds a move the given game just played, dropping any undone moves
+  void played(FloodItGame game, int color) {
+    this.moves.size = this.current;
+    while (this.snapshots.size() > this.current / this.interval + 1) {
+      this.snapshots.remove(this.snapshots.size() - 1);
+    }
+    this.moves.add(color);
+    this.current++;
+    if (this.current % this.interval == 0) {
+      this.snapshots.add(game.engine.snapshot());
+    }
+  }
+
+  // returns true if there is a move to undo
+  boolean canUndo() {
+    return this.current > 0;
+  }
+
+  // returns true if there is an undone move to redo
+  boolean canRedo() {
+    return this.current < this.moves.size;
+  }
+
+  // EFFECT: puts the given game back to how it was after the given number of moves,
+  // restoring the nearest snapshot before it if the game has to go back
+  void jumpTo(FloodItGame game, int move) {
+    if (move < 0 || move > this.moves.size) {
+      throw new IllegalArgumentException("No move " + move + " in a history of "
+          + this.moves.size);
+    }
+    int from = this.current;
+    if (move < this.current) {
+      from = move / this.interval * this.interval;
+      game.engine.restore(this.snapshots.get(move / this.interval));
+    }
+    for (int i = from; i < move; i++) {
+      game.engine.flood(this.moves.get(i));
+    }
+    this.current = move;
+    game.userClicksCount = move;
+    if (move == 0) {
+      game.floodColor = this.startColor;
+    }
+    else {
+      game.floodColor = this.moves.get(move - 1);
+    }
+  }
+}
+
+// Maps the color indices stored on a board to the colors they are drawn in, so that
+// only drawing ever looks at a Color. The first colors are Kelly's colors of maximum
+// contrast, chosen to be told apart at a glance, and any past those are spread evenly
+// around the color wheel in two shades, so no two indices draw the same color
+class Palette {
+  static final Color[] DISTINCT = { new Color(0xF3C300), new Color(0x875692),
+      new Color(0xF38400), new Color(0xA1CAF1), new Color(0xBE0032), new Color(0xC2B280),
+      new Color(0x848482), new Color(0x008856), new Color(0xE68FAC), new Color(0x0067A5),
+      new Color(0xF99379), new Color(0x604E97), new Color(0xF6A600), new Color(0xB3446C),
+      new Color(0xDCD300), new Color(0x882D17), new Color(0x8DB600), new Color(0x654522),
+      new Color(0xE25822), new Color(0x2B3D26) };
+
+  Color[] colors;
+
+  // a palette for the given number of colors
+  Palette(int numColors) {
+    this.colors = new Color[numColors];
+    int spread = numColors - DISTINCT.length;
+    for (int i = 0; i < numColors; i++) {
+      if (i < DISTINCT.length) {
+        this.colors[i] = DISTINCT[i];
+      }
+      else {
+        int k = i - DISTINCT.length;
+        this.colors[i] = Color.getHSBColor((float) k / spread, 0.7f, k % 2 == 0 ? 0.95f : 0.55f);
+      }
+    }
+  }
+
+  // returns the number of colors in this palette
+  int size() {
+    return this.colors.length;
+  }
+
+  // returns the color drawn for the given index
+  Color color(int index) {
+    return this.colors[index];
+  }
+}
+
+// Keeps a pre-rendered image of a board with one pixel per cell, and repaints only
+// the cells marked dirty since the last frame
+class BoardRenderer {
+  Board board;
+  Palette palette;
+
+  ComputedPixelImage pixels;
+
+  // the color index last painted for every cell
+  byte[] drawn;
+
+  // cells that may have changed color since they were last painted
+  IntList dirty;
+
+  // set when any cell may have changed, so the next render checks every one
+  boolean allDirty;
+
+  BoardRenderer(Board board, Palette palette) {
+    this.board = board;
+    this.palette = palette;
+    this.pixels = new ComputedPixelImage(board.sideLength(), board.sideLength());
+    this.drawn = new byte[board.size()];
+    this.dirty = new IntList();
+    for (int i = 0; i < board.size(); i++) {
+      this.paint(i);
+    }
+  }
+
+  // EFFECT: marks the given cell to be repainted on the next render
+  void markDirty(int cell) {
+    this.dirty.add(cell);
+  }
+
+  // EFFECT: marks every cell to be checked on the next render
+  void markAll() {
+    this.allDirty = true;
+  }
+
+  // EFFECT: repaints the dirty cells whose color changed since they were painted
+  // returns the image of the board, one pixel per cell
+  WorldImage render() {
+    if (this.allDirty) {
+      for (int cell = 0; cell < this.drawn.length; cell++) {
+        if ((this.drawn[cell] & 0xFF) != this.board.color(cell)) {
+          this.paint(cell);
+        }
+      }
+      this.allDirty = false;
+    }
+    for (int i = 0; i < this.dirty.size; i++) {
+      int cell = this.dirty.get(i);
+      if ((this.drawn[cell] & 0xFF) != this.board.color(cell)) {
+        this.paint(cell);
+      }
+    }
+    this.dirty.clear();
+    return this.pixels;
+  }
+
+  // EFFECT: paints the pixel of the given cell in its current color
+  void paint(int cell) {
+    int color = this.board.color(cell);
+    this.pixels.setPixel(this.board.column(cell), this.board.row(cell), this.palette.color(color));
+    this.drawn[cell] = (byte) color;
+  }
+}
+
+// Maps the cells of a board to the pixels of the square of the window it is drawn in,
+// so that a board of any size fits and can be zoomed and panned. Cells are drawn scale
+// pixels wide with the point of the board in focus at the middle of the view. The
+// transform, its inverse and the cells in view are worked out again only when the view
+// changes, so finding the cell under a pixel is a multiply and a floor, and only the
+// cells in view are handed on to be drawn
+class Viewport {
+  // the most pixels a cell is drawn with when zoomed in
+  static final int MAX_ZOOMED_SIZE = 100;
+
+  int sideLength;
+
+  // the middle and the width of the square the board is drawn in
+  int centerX;
+  int centerY;
+  int size;
+
+  // the pixels of a cell when the whole board fits in the view, whole pixels unless a
+  // cell gets less than one
+  double fitScale;
+
+  // how many times wider than that cells are drawn, always a power of two
+  int zoom;
+
+  // the point of the board in focus, in cells from its top left corner
+  double focusX;
+  double focusY;
+
+  // a cell at column c and row r starts at pixel scale * c + offsetX, scale * r + offsetY
+  double scale;
+  double inverseScale;
+  double offsetX;
+  double offsetY;
+
+  // the first and one past the last columns and rows in view
+  int firstColumn;
+  int endColumn;
+  int firstRow;
+  int endRow;
+
+  // the pixels of the window the board is drawn across, clipped to the view so that
+  // cells partly in view are cut off at its edges
+  int drawnLeft;
+  int drawnTop;
+  int drawnRight;
+  int drawnBottom;
+
+  // the image last drawn of the cells in view, and the image of the board it was cut
+  // from
+  WorldImage image;
+  WorldImage cutFrom;
+
+  // a view of a board with the given number of cells on a side, fitted into the square
+  // of the given middle and width with cells of at most the given size
+  Viewport(int sideLength, int centerX, int centerY, int size, int maxCellSize) {
+    this.sideLength = sideLength;
+    this.centerX = centerX;
+    this.centerY = centerY;
+    this.size = size;
+    if (size >= sideLength) {
+      this.fitScale = Math.min(maxCellSize, size / sideLength);
+    }
+    else {
+      this.fitScale = (double) size / sideLength;
+    }
+    this.zoom = 1;
+    this.focusX = sideLength / 2.0;
+    this.focusY = sideLength / 2.0;
+    this.update();
+  }
+
+  // EFFECT: works out the transform and the cells in view for the current zoom and
+  // focus, keeping the focus where the board still fills as much of the view as it can
+  void update() {
+    this.scale = this.fitScale * this.zoom;
+    this.inverseScale = 1 / this.scale;
+    this.focusX = this.clampFocus(this.focusX);
+    this.focusY = this.clampFocus(this.focusY);
+    this.offsetX = this.centerX - this.focusX * this.scale;
+    this.offsetY = this.centerY - this.focusY * this.scale;
+    this.firstColumn = this.firstInView(this.centerX, this.offsetX);
+    this.endColumn = this.endInView(this.centerX, this.offsetX);
+    this.firstRow = this.firstInView(this.centerY, this.offsetY);
+    this.endRow = this.endInView(this.centerY, this.offsetY);
+    this.drawnLeft = this.drawnStart(this.centerX, this.offsetX);
+    this.drawnRight = this.drawnEnd(this.centerX, this.offsetX);
+    this.drawnTop = this.drawnStart(this.centerY, this.offsetY);
+    this.drawnBottom = this.drawnEnd(this.centerY, this.offsetY);
+    this.image = null;
+  }
+
+  // returns the first pixel the board is drawn at along an axis of the view with the
+  // given middle and offset
+  int drawnStart(int center, double offset) {
+    return (int) Math.round(Math.max(center - this.size / 2.0, offset));
+  }
+
+  // returns one past the last pixel the board is drawn at along an axis of the view
+  // with the given middle and offset
+  int drawnEnd(int center, double offset) {
+    return (int) Math.round(Math.min(center + this.size / 2.0, offset + this.scale
+        * this.sideLength));
+  }
+
+  // returns the given focus, moved so that the view doesn't show past an edge of the
+  // board, or the middle of the board if the whole board is in view
+  double clampFocus(double focus) {
+    double half = this.size / 2.0 * this.inverseScale;
+    if (half * 2 >= this.sideLength) {
+      return this.sideLength / 2.0;
+    }
+    return Math.max(half, Math.min(this.sideLength - half, focus));
+  }
+
+  // returns the first cell in view along an axis of the view with the given middle and
+  // offset
+  int firstInView(int center, double offset) {
+    return Math.max(0, (int) Math.floor((center - this.size / 2.0 - offset)
+        * this.inverseScale));
+  }
+
+  // returns one past the last cell in view along an axis of the view with the given
+  // middle and offset
+  int endInView(int center, double offset) {
+    return Math.min(this.sideLength, (int) Math.ceil((center + this.size / 2.0 - offset)
+        * this.inverseScale));
+  }
+
+  // returns the index of the cell drawn at the given pixel, or -1 if no cell is drawn
+  // there
+  int cellAt(int x, int y) {
+    if (2 * Math.abs(x - this.centerX) > this.size || 2 * Math.abs(y - this.centerY)
+        > this.size) {
+      return -1;
+    }
+    int column = (int) Math.floor((x - this.offsetX) * this.inverseScale);
+    int row = (int) Math.floor((y - this.offsetY) * this.inverseScale);
+    if (column < 0 || column >= this.sideLength || row < 0 || row >= this.sideLength) {
+      return -1;
+    }
+    return row * this.sideLength + column;
+  }
+
+  // returns the pixel at the middle of the given cell, as drawn now
+  Posn positionOf(int cell) {
+    return new Posn(
+        (int) Math.floor(this.offsetX + this.scale * (cell % this.sideLength + 0.5)),
+        (int) Math.floor(this.offsetY + this.scale * (cell / this.sideLength + 0.5)));
+  }
+
+  // EFFECT: zooms in the given number of times, or out if it is negative, doubling
+  // or halving the width of a cell each time, keeping the focus where it is
+  void zoomBy(int times) {
+    for (int i = 0; i < times && this.fitScale * this.zoom * 2 <= MAX_ZOOMED_SIZE; i++) {
+      this.zoom *= 2;
+    }
+    for (int i = 0; i > times && this.zoom > 1; i--) {
+      this.zoom /= 2;
+    }
+    this.update();
+  }
+
+  // EFFECT: moves the focus by the given number of pixels across and down
+  void pan(int dx, int dy) {
+    this.focusX += dx * this.inverseScale;
+    this.focusY += dy * this.inverseScale;
+    this.update();
+  }
+
+  // EFFECT: zooms in until cells are at least two pixels wide, so that every cell has
+  // a pixel of its own in the middle, and focuses on the given cell
+  void show(int cell) {
+    while (this.fitScale * this.zoom < 2) {
+      this.zoom *= 2;
+    }
+    this.focusX = cell % this.sideLength + 0.5;
+    this.focusY = cell / this.sideLength + 0.5;
+    this.update();
+  }
+
+  // returns the cells in view of the given image of the board, with one pixel per
+  // cell, scaled up to the size they are drawn and cut down to the pixels in view
+  WorldImage visible(WorldImage board) {
+    if (this.image == null || this.cutFrom != board) {
+      WorldImage cells = new ScaleImage(new CropImage(this.firstColumn, this.firstRow,
+          this.endColumn - this.firstColumn, this.endRow - this.firstRow, board), this.scale);
+      int cellsLeft = (int) Math.round(this.offsetX + this.scale * this.firstColumn);
+      int cellsTop = (int) Math.round(this.offsetY + this.scale * this.firstRow);
+      this.image = new CropImage(this.drawnLeft - cellsLeft, this.drawnTop - cellsTop,
+          this.drawnRight - this.drawnLeft, this.drawnBottom - this.drawnTop, cells);
+      this.cutFrom = board;
+    }
+    return this.image;
+  }
+
+  // returns the pixel across the window that the middle of the image of the cells in
+  // view goes at
+  int imageX() {
+    return (this.drawnLeft + this.drawnRight) / 2;
+  }
+
+  // returns the pixel down the window that the middle of the image of the cells in
+  // view goes at
+  int imageY() {
+    return (this.drawnTop + this.drawnBottom) / 2;
+  }
+}
+
+// Fills boards with random colors from a seed. Every block of rows is drawn from its
+// own generator, keyed by the seed, the number of the board and the block, so a board
+// comes out bit for bit the same whether its blocks are filled one after another or
+// in parallel stripes
+class BoardGenerator {
+  // the rows drawn from one generator
+  static final int BLOCK_ROWS = 32;
+
+  // boards with fewer cells than this aren't worth splitting across threads
+  static final int PARALLEL_CELLS = 1 << 18;
+
+  // the odd constant SplittableRandom steps its seed by, used here to spread keys
+  static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+  long seed;
+  int numColors;
+
+  BoardGenerator(long seed, int numColors) {
+    this.seed = seed;
+    this.numColors = numColors;
+  }
+
+  // EFFECT: gives every cell of the given board a random color and unfloods it,
+  // drawing the same colors every time for the same board number. The colors are
+  // drawn straight into the cells of the board
+  void fill(Board board, int boardNumber) {
+    int side = board.sideLength();
+    byte[] colors = board.cellColors();
+    int blocks = (side + BLOCK_ROWS - 1) / BLOCK_ROWS;
+    if (colors.length >= PARALLEL_CELLS) {
+      IntStream.range(0, blocks).parallel()
+          .forEach(block -> this.fillBlock(colors, side, boardNumber, block));
+    }
+    else {
+      for (int block = 0; block < blocks; block++) {
+        this.fillBlock(colors, side, boardNumber, block);
+      }
+    }
+    board.recount();
+  }
+
+  // EFFECT: draws the colors of the rows in the given block of the given board
+  void fillBlock(byte[] colors, int side, int boardNumber, int block) {
+    SplittableRandom rand = new SplittableRandom(this.key(boardNumber, block));
+    int end = Math.min(side, (block + 1) * BLOCK_ROWS) * side;
+    for (int i = block * BLOCK_ROWS * side; i < end; i++) {
+      colors[i] = (byte) rand.nextInt(this.numColors);
+    }
+  }
+
+  // returns the seed of the generator for the given block of the given board
+  long key(int boardNumber, int block) {
+    long board = BoardGenerator.mix(this.seed + GOLDEN_GAMMA * boardNumber);
+    return BoardGenerator.mix(board + GOLDEN_GAMMA * block);
+  }
+
+  // returns the given bits scrambled so that nearby inputs give unrelated outputs,
+  // using the finalizer of SplitMix64
+  static long mix(long bits) {
+    bits = (bits ^ (bits >>> 30)) * 0xBF58476D1CE4E5B9L;
+    bits = (bits ^ (bits >>> 27)) * 0x94D049BB133111EBL;
+    return bits ^ (bits >>> 31);
+  }
+}
+
+// The state and rules of one game of Flood It with nothing to display it, so that
+// games can be played by programs as well as through a FloodItWorld
+class FloodItGame {
+  int sideLength;
+  int numColors;
+
+  // the seed every board of this game is generated from, and how many have been
+  long seed;
+  BoardGenerator generator;
+  int boardsGenerated = 0;
+
+  // random numbers for players that need them
+  Random rand;
+
+  // All the cells of the game
+  Board board;
+
+  // floods whole regions of the board into the flooded region
+  FloodEngine engine;
+
+  // the kind of engine each board is flooded with: "regions" or "bitboard"
+  String engineName;
+
+  // index of the color the flooded region is turning
+  int floodColor;
+
+  int userClicksCount = 0;
+  int maxClicksAllowed;
+
+  // the file every move is logged to, if this game is being recorded
+  GameFile recording;
+
+  // the moves played on this board, for taking them back
+  GameHistory history;
+
+  // sets the move limit of each new board
+  MoveLimitCalibrator calibrator = new MoveLimitCalibrator(3, 64, 50000000);
+
+  // measures moves and new boards, if this game is being measured
+  GameMetrics metrics;
+
+  // two arg constructor --- not seeded
+  FloodItGame(int sideLength, int numColors) {
+    this(sideLength, numColors, new SplittableRandom().nextLong());
+  }
+
+  // three arg constructor -- seeded
+  FloodItGame(int sideLength, int numColors, long seed) {
+    this(sideLength, numColors, seed, "regions");
+  }
+
+  // four arg constructor -- seeded, flooding with the engine of the given name
+  FloodItGame(int sideLength, int numColors, long seed, String engineName) {
+    if (!engineName.equals("regions") && !engineName.equals("bitboard")) {
+      throw new IllegalArgumentException("Unknown flood engine: " + engineName);
+    }
+    // each cell keeps its color in one byte
+    if (numColors > 256) {
+      throw new IllegalArgumentException("Can't play with " + numColors + " colors");
+    }
+    this.sideLength = sideLength;
+    this.numColors = numColors;
+    this.engineName = engineName;
+
+    this.seed = seed;
+    this.generator = new BoardGenerator(seed, numColors);
+    this.rand = new Random(seed);
+
+    this.maxClicksAllowed = this.defaultMaxClicks();
+  }
+
+  // returns the move limit for a board of this size and number of colors
+  int defaultMaxClicks() {
+    int maxClicks = this.sideLength + 2 * this.numColors + 3;
+    if (maxClicks < 5) {
+      maxClicks = 5;
+    }
+    if (maxClicks > 100) {
+      maxClicks = 100;
+    }
+    return maxClicks;
+  }
+
+  // EFFECT: initializes the board with a user given size, giving each cell a random
+  // color. Each board of a game is the next one generated from its seed, so a seed
+  // replays the same boards through any number of restarts
+  void initBoard() {
+    // new boards are rare enough to measure every one
+    long bytes = 0;
+    long start = 0;
+    if (this.metrics != null) {
+      bytes = this.metrics.allocatedBytes();
+      start = System.nanoTime();
+    }
+
+    this.board = this.reusableBoard();
+    this.generator.fill(this.board, this.boardsGenerated);
+    this.boardsGenerated++;
+
+    // set starting cell flood color
+    // and set the first cell to already be flooded
+    this.floodColor = this.board.color(0);
+    this.board.flood(0);
+
+    if (this.metrics != null) {
+      long nanos = System.nanoTime() - start;
+      this.metrics.boardMade(this.board.size(), nanos, this.metrics.allocatedBytes() - bytes);
+    }
+  }
+
+  // returns the board of this game to be filled again, or a new one if it has none of
+  // the right size, so that starting over keeps the cells and flood bits of the last
+  // board instead of allocating them again
+  Board reusableBoard() {
+    if (this.board == null || this.board.sideLength() != this.sideLength) {
+      return new PackedBoard(this.sideLength, this.numColors);
+    }
+    return this.board;
+  }
+
+  // EFFECT: labels the regions of the board, floods the cells that start off
+  // connected to the first cell by the same color, and sets the move limit from the
+  // moves this board takes
+  void initNeighbors() {
+    this.startEngine();
+    this.maxClicksAllowed = this.calibrator.calibrate(this);
+  }
+
+  // EFFECT: floods the cells connected to the first cell with an engine and history
+  // that have no moves yet, starting over the ones this game already has so that
+  // their storage is kept from board to board
+  void startEngine() {
+    if (this.engine == null) {
+      this.engine = this.newEngine();
+    }
+    else {
+      this.engine.reset(this.board, 0);
+    }
+    if (this.history == null) {
+      this.history = new GameHistory(this, 16);
+    }
+    else {
+      this.history.reset(this);
+    }
+  }
+
+  // returns an engine of the kind this game floods with, that has flooded the cells
+  // connected to the first cell
+  FloodEngine newEngine() {
+    if (this.engineName.equals("bitboard")) {
+      return new BitboardFloodEngine(this.board, 0, this.numColors);
+    }
+    return new RegionFloodEngine(this.board, 0);
+  }
+
+  // EFFECT: starts over on a new board with no moves made
+  void restart() {
+    this.stopRecording();
+    this.initBoard();
+    this.initNeighbors();
+    this.userClicksCount = 0;
+  }
+
+  // EFFECT: starts over on the board saved in the given record, with its move limit
+  void startFrom(GameRecord record) {
+    this.board = this.reusableBoard();
+    this.board.load(record.cells());
+    this.boardsGenerated = record.boardNumber + 1;
+    this.floodColor = this.board.color(0);
+    this.board.flood(0);
+    this.startEngine();
+    this.userClicksCount = 0;
+    this.maxClicksAllowed = record.maxClicksAllowed;
+  }
+
+  // EFFECT: starts over on the given board of this game's seed with the given move
+  // limit, and plays the given moves into it
+  void resume(int boardNumber, int maxClicksAllowed, byte[] moves) {
+    this.stopRecording();
+    this.boardsGenerated = boardNumber;
+    this.initBoard();
+    this.startEngine();
+    this.userClicksCount = 0;
+    this.maxClicksAllowed = maxClicksAllowed;
+    for (byte move : moves) {
+      this.play(move & 0xFF);
+    }
+  }
+
+  // EFFECT: saves the board of this game to the given file and logs every move
+  // played after it there
+  void record(GameFile file) throws IOException {
+    if (this.userClicksCount > 0) {
+      throw new IllegalStateException("Games can only be recorded from the first move");
+    }
+    this.stopRecording();
+    file.create(this);
+    this.recording = file;
+  }
+
+  // EFFECT: closes the file this game is being recorded to, if there is one
+  void stopRecording() {
+    if (this.recording != null) {
+      try {
+        this.recording.close();
+      }
+      catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      this.recording = null;
+    }
+  }
+
+  // EFFECT: floods the flooded region with the given color and counts the move,
+  // unless the region already has that color or already covers the whole board
+  // returns true if the move was made
+  boolean play(int color) {
+    if (color == this.floodColor || this.wholeBoardFlooded()) {
+      return false;
+    }
+    this.floodColor = color;
+
+    // only the regions bordering the flooded region can be absorbed
+    if (this.metrics != null && this.metrics.measureMove()) {
+      this.measuredFlood();
+    }
+    else {
+      this.engine.flood(this.floodColor);
+    }
+    this.userClicksCount++;
+
+    if (this.recording != null) {
+      try {
+        this.recording.append(color);
+      }
+      catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+    if (this.history != null) {
+      this.history.played(this, color);
+    }
+    return true;
+  }
+
+  // EFFECT: plays the given colors in order, skipping any that the flooded region
+  // already has when it comes up
+  // returns the number of moves made
+  int playAll(int[] colors) {
+    return this.playAll(colors, colors.length);
+  }
+
+  // EFFECT: plays the given number of colors from the start of the given array in
+  // order, skipping any that the flooded region already has when it comes up
+  // returns the number of moves made
+  int playAll(int[] colors, int count) {
+    int played = 0;
+    for (int i = 0; i < count; i++) {
+      if (this.play(colors[i])) {
+        played++;
+      }
+    }
+    return played;
+  }
+
+  // EFFECT: floods the flooded region with the flood color, and passes the cells it
+  // absorbed, the frontier it left and the time and memory it took to the metrics
+  void measuredFlood() {
+    long bytes = this.metrics.allocatedBytes();
+    long start = System.nanoTime();
+    int absorbed = this.engine.flood(this.floodColor);
+    long nanos = System.nanoTime() - start;
+    bytes = this.metrics.allocatedBytes() - bytes;
+    this.metrics.moved(absorbed, this.engine.frontier(), nanos, bytes);
+  }
+
+  // EFFECT: takes back the last move
+  // returns true if there was a move to take back
+  boolean undo() {
+    if (!this.history.canUndo()) {
+      return false;
+    }
+    this.jumpTo(this.history.current - 1);
+    return true;
+  }
+
+  // EFFECT: plays the last move taken back again
+  // returns true if there was a move to play again
+  boolean redo() {
+    if (!this.history.canRedo()) {
+      return false;
+    }
+    this.jumpTo(this.history.current + 1);
+    return true;
+  }
+
+  // EFFECT: puts this game back to how it was after the given number of moves
+  void jumpTo(int move) {
+    if (this.recording != null) {
+      throw new IllegalStateException("Moves of a recorded game can't be taken back");
+    }
+    this.history.jumpTo(this, move);
+  }
+
+  // returns true if the whole board is flooded
+  boolean wholeBoardFlooded() {
+    return this.engine.allFlooded();
+  }
+
+  // returns true if the move limit has been reached
+  boolean outOfMoves() {
+    return this.userClicksCount >= this.maxClicksAllowed;
+  }
+
+  // returns true if the board was flooded without going over the move limit
+  boolean won() {
+    return this.wholeBoardFlooded() && this.userClicksCount <= this.maxClicksAllowed;
+  }
+
+  // returns the whole percentage of the board that is flooded
+  int percentFlooded() {
+    return (int) (100L * this.board.floodedCount() / this.board.size());
+  }
+
+  // returns a copy of the flooded regions that strategies can search from
+  RegionState searchState() {
+    return this.engine.regionState();
+  }
+
+  // returns the current position as an immutable state that moves can be tried from
+  GameState gameState() {
+    return GameState.of(this.engine.regionState(), this.floodColor, this.numColors);
+  }
+
+  // returns the color the given strategy would flood with next
+  int hint(Strategy strategy) {
+    return strategy.nextColor(this);
+  }
+}
+
+// Picks the next color to flood a game with
+interface Strategy {
+  // returns the color to flood the given game with next
+  int nextColor(FloodItGame game);
+}
+
+// Picks any color other than the flood color that some unflooded cell still has,
+// drawing from the game's own random numbers so that a seeded game always plays out
+// the same way
+class RandomStrategy implements Strategy {
+  public int nextColor(FloodItGame game) {
+    int choices = game.board.colorsRemaining();
+    if (game.board.remaining(game.floodColor) > 0) {
+      choices--;
+    }
+    int pick = game.rand.nextInt(choices);
+    for (int color = 0; color < game.numColors; color++) {
+      if (color != game.floodColor && game.board.remaining(color) > 0) {
+        if (pick == 0) {
+          return color;
+        }
+        pick--;
+      }
+    }
+    return game.floodColor;
+  }
+}
+
+// Picks the color that absorbs the most cells right away
+class GreedyAbsorbStrategy implements Strategy {
+  public int nextColor(FloodItGame game) {
+    return this.bestColor(game.searchState(), game.numColors);
+  }
+
+  // returns the color that absorbs the most cells from the given state, the lowest
+  // such color on a tie
+  int bestColor(RegionState state, int numColors) {
+    return this.bestOf(state.gains(numColors));
+  }
+
+  // returns the color with the most cells in the given gains, the lowest such color
+  // on a tie
+  int bestOf(int[] gains) {
+    int best = 0;
+    for (int color = 1; color < gains.length; color++) {
+      if (gains[color] > gains[best]) {
+        best = color;
+      }
+    }
+    return best;
+  }
+}
+
+// Picks the color that leaves the most cells bordering the flooded region, so the
+// next move has the most to choose from
+class GreedyFrontierStrategy implements Strategy {
+  public int nextColor(FloodItGame game) {
+    GameState state = game.gameState();
+    int[] gains = state.gains;
+    int best = -1;
+    int bestBoundary = -1;
+    for (int color = 0; color < game.numColors; color++) {
+      if (gains[color] > 0) {
+        GameState next = state.play(color);
+        int boundary = next.boundaryCells();
+        if (next.allFlooded()) {
+          return color;
+        }
+        if (boundary > bestBoundary || (boundary == bestBoundary && gains[color] > gains[best])) {
+          best = color;
+          bestBoundary = boundary;
+        }
+      }
+    }
+    return best;
+  }
+}
+
+// Searches every sequence of moves a few plies deep and picks the first move of the
+// one that floods the most cells, going one ply deeper at a time until the depth
+// limit or the time budget is reached
+class LookaheadStrategy implements Strategy {
+  int depth;
+  long budgetNanos;
+
+  LookaheadStrategy(int depth, long budgetNanos) {
+    this.depth = depth;
+    this.budgetNanos = budgetNanos;
+  }
+
+  public int nextColor(FloodItGame game) {
+    long start = System.nanoTime();
+    GameState state = game.gameState();
+    int best = new GreedyAbsorbStrategy().bestOf(state.gains);
+    for (int plies = 2; plies <= this.depth; plies++) {
+      int choice = this.bestFirstMove(state, plies, start);
+      if (choice == -1) {
+        break;
+      }
+      best = choice;
+    }
+    return best;
+  }
+
+  // returns the first move of the best sequence of the given number of moves from
+  // the given state, or -1 if the time budget since the given start ran out before
+  // the search finished
+  int bestFirstMove(GameState state, int plies, long start) {
+    int best = -1;
+    long bestScore = -1;
+    for (int color = 0; color < state.gains.length; color++) {
+      if (state.gain(color) > 0) {
+        long score = this.score(state, color, plies, start);
+        if (score < 0) {
+          return -1;
+        }
+        if (score > bestScore) {
+          best = color;
+          bestScore = score;
+        }
+      }
+    }
+    return best;
+  }
+
+  // returns how good it is to flood the given state with the given color and then
+  // make the best of the remaining moves, or -1 if the time budget ran out
+  long score(GameState state, int color, int plies, long start) {
+    if (System.nanoTime() - start > this.budgetNanos) {
+      return -1;
+    }
+    GameState next = state.play(color);
+
+    // a win is worth more than any amount of cells, and sooner is better
+    if (next.allFlooded()) {
+      return ((long) plies << 32) | next.floodedCells;
+    }
+    if (plies == 1) {
+      return next.floodedCells;
+    }
+
+    // colors that absorb nothing can't lead anywhere better than stopping here
+    long best = next.floodedCells;
+    for (int c = 0; c < next.gains.length; c++) {
+      if (next.gain(c) > 0) {
+        long score = this.score(next, c, plies - 1, start);
+        if (score < 0) {
+          return -1;
+        }
+        best = Math.max(best, score);
+      }
+    }
+    return best;
+  }
+}
+
+// A fixed-size table of lower bounds on the moves still needed from states already
+// searched, keyed by Zobrist hash, with two entries per bucket so that a new entry
+// evicts the one backed by the least search
+class TranspositionTable {
+  long[] keys;
+  int[] bounds;
+  int mask;
+
+  // a table of 2 to the given power buckets
+  TranspositionTable(int bits) {
+    this.keys = new long[2 << bits];
+    this.bounds = new int[2 << bits];
+    this.mask = (1 << bits) - 1;
+  }
+
+  // returns the lower bound stored for the given key, or 0 if there is none
+  int lookup(long key) {
+    int slot = ((int) key & this.mask) << 1;
+    if (this.keys[slot] == key) {
+      return this.bounds[slot];
+    }
+    if (this.keys[slot + 1] == key) {
+      return this.bounds[slot + 1];
+    }
+    return 0;
+  }
+
+  // EFFECT: stores the given lower bound for the given key, replacing the entry
+  // with the lower bound in its bucket if the key isn't there yet
+  void store(long key, int bound) {
+    int slot = ((int) key & this.mask) << 1;
+    if (this.keys[slot] != key
+        && (this.keys[slot + 1] == key || this.bounds[slot + 1] < this.bounds[slot])) {
+      slot++;
+    }
+    if (this.keys[slot] != key) {
+      this.keys[slot] = key;
+      this.bounds[slot] = 0;
+    }
+    this.bounds[slot] = Math.max(this.bounds[slot], bound);
+  }
+}
+
+// Finds the fewest moves that flood a board by iterative deepening A*, for boards
+// small enough to search exactly. Both heuristics never overestimate: every color
+// left needs its own move, and a move only reaches one step further out in the
+// region graph
+class OptimalSolver {
+  static final int FOUND = -1;
+  static final int ABORTED = -2;
+
+  RegionState root;
+  RegionGraph graph;
+  int numColors;
+
+  // a random key per region, so a set of regions hashes to the xor of their keys
+  long[] zobrist;
+  TranspositionTable table;
+
+  // the most states to visit before giving up, and how many have been so far
+  long nodeLimit;
+  long nodes;
+
+  // how long to search before giving up, and when the search started
+  long budgetNanos;
+  long start;
+
+  // the moves of the path being searched
+  IntList path;
+
+  // the largest number of moves proven too few so far, plus one
+  int lowerBound;
+
+  // scratch arrays reused by every call to the heuristic
+  int[] distance;
+  int[] queue;
+  int[] remainingCells;
+
+  OptimalSolver(RegionState root, int numColors, int tableBits, long nodeLimit) {
+    this(root, numColors, tableBits, nodeLimit, Long.MAX_VALUE);
+  }
+
+  // a solver that also gives up once the given time has passed
+  OptimalSolver(RegionState root, int numColors, int tableBits, long nodeLimit,
+      long budgetNanos) {
+    this.root = root;
+    this.graph = root.graph;
+    this.numColors = numColors;
+    Random keys = new Random(0x5EED);
+    this.zobrist = new long[this.graph.count];
+    for (int r = 0; r < this.zobrist.length; r++) {
+      this.zobrist[r] = keys.nextLong();
+    }
+    this.table = new TranspositionTable(tableBits);
+    this.nodeLimit = nodeLimit;
+    this.budgetNanos = budgetNanos;
+    this.path = new IntList();
+    this.distance = new int[this.graph.count];
+    this.queue = new int[this.graph.count];
+    this.remainingCells = new int[numColors];
+  }
+
+  // returns the moves of a shortest way to flood the board, or null if the node
+  // limit or the time ran out first
+  int[] solve() {
+    this.start = System.nanoTime();
+    long hash = 0;
+    for (int r = 0; r < this.graph.count; r++) {
+      if (this.root.isFlooded(r)) {
+        hash ^= this.zobrist[r];
+      }
+    }
+    this.nodes = 0;
+    this.lowerBound = this.heuristic(this.root);
+    while (true) {
+      this.path.clear();
+      int result = this.search(this.root, hash, 0, this.lowerBound);
+      if (result == FOUND) {
+        return Arrays.copyOf(this.path.items, this.path.size);
+      }
+      if (result == ABORTED) {
+        return null;
+      }
+      this.lowerBound = result;
+    }
+  }
+
+  // returns FOUND if the given state, reached in g moves, can be flooded within the
+  // bound, leaving the moves in the path, ABORTED if the node limit or the time ran
+  // out, and otherwise the smallest total number of moves that went over the bound
+  int search(RegionState state, long hash, int g, int bound) {
+    this.nodes++;
+    if (this.nodes > this.nodeLimit) {
+      return ABORTED;
+    }
+    // reading the clock costs more than visiting a state, so only check it now and then
+    if ((this.nodes & 1023) == 0 && System.nanoTime() - this.start > this.budgetNanos) {
+      return ABORTED;
+    }
+    if (state.allFlooded()) {
+      return FOUND;
+    }
+    int f = g + Math.max(this.heuristic(state), this.table.lookup(hash));
+    if (f > bound) {
+      return f;
+    }
+
+    int[] gains = state.gains(this.numColors);
+    int forced = this.forcedColor(gains);
+    int smallest = Integer.MAX_VALUE;
+    IntList absorbed = new IntList();
+    for (int color : this.byGain(gains)) {
+      if (gains[color] > 0 && (forced == -1 || color == forced)) {
+        RegionState next = state.copy();
+        absorbed.clear();
+        next.absorb(color, absorbed);
+        long nextHash = hash;
+        for (int i = 0; i < absorbed.size; i++) {
+          nextHash ^= this.zobrist[absorbed.get(i)];
+        }
+        this.path.add(color);
+        int result = this.search(next, nextHash, g + 1, bound);
+        if (result == FOUND || result == ABORTED) {
+          return result;
+        }
+        this.path.size--;
+        smallest = Math.min(smallest, result);
+      }
+    }
+
+    // nothing under the bound was found below this state, so it needs at least this
+    // many more moves
+    this.table.store(hash, smallest - g);
+    return smallest;
+  }
+
+  // returns the colors ordered from the most cells gained to the least, so the last
+  // iteration tends to reach a solution before searching much of its tree
+  int[] byGain(int[] gains) {
+    int[] order = new int[this.numColors];
+    for (int i = 0; i < order.length; i++) {
+      int color = i;
+      int j = i;
+      while (j > 0 && gains[order[j - 1]] < gains[color]) {
+        order[j] = order[j - 1];
+        j--;
+      }
+      order[j] = color;
+    }
+    return order;
+  }
+
+  // returns a color whose every remaining cell borders the flooded region, which can
+  // always be taken first without making the solution longer, or -1 if there is none
+  // EFFECT: uses the remaining cell counts left by the last call to the heuristic
+  int forcedColor(int[] gains) {
+    for (int color = 0; color < this.numColors; color++) {
+      if (gains[color] > 0 && gains[color] == this.remainingCells[color]) {
+        return color;
+      }
+    }
+    return -1;
+  }
+
+  // returns a lower bound on the moves needed to flood the given state: the larger
+  // of the number of colors left and the distance in regions to the farthest
+  // unflooded region
+  // EFFECT: counts the unflooded cells of every color into remainingCells
+  int heuristic(RegionState state) {
+    Arrays.fill(this.remainingCells, 0);
+    int head = 0;
+    int tail = 0;
+    for (int r = 0; r < this.graph.count; r++) {
+      if (state.isFlooded(r)) {
+        this.distance[r] = 0;
+        this.queue[tail] = r;
+        tail++;
+      }
+      else {
+        this.distance[r] = -1;
+        this.remainingCells[this.graph.regionColor[r]] += this.graph.regionSize[r];
+      }
+    }
+
+    int farthest = 0;
+    while (head < tail) {
+      int region = this.queue[head];
+      head++;
+      for (int n = this.graph.neighborStart[region]; n < this.graph.neighborStart[region
+          + 1]; n++) {
+        int neighbor = this.graph.neighbors[n];
+        if (this.distance[neighbor] == -1) {
+          this.distance[neighbor] = this.distance[region] + 1;
+          farthest = this.distance[neighbor];
+          this.queue[tail] = neighbor;
+          tail++;
+        }
+      }
+    }
+
+    int colors = 0;
+    for (int color = 0; color < this.numColors; color++) {
+      if (this.remainingCells[color] > 0) {
+        colors++;
+      }
+    }
+    return Math.max(colors, farthest);
+  }
+}
+
+// Sets the move limit of a newly generated board from the moves it actually takes:
+// the optimum for boards with few enough regions to solve exactly, and otherwise the
+// moves a greedy player makes, plus some slack either way. The search stops when the
+// time runs out, keeping the best bound it found
+class MoveLimitCalibrator {
+  // how many moves over the estimate the player is allowed
+  int slack;
+
+  // the most regions a board can have to be solved exactly
+  int exactRegions;
+
+  long budgetNanos;
+
+  GreedyAbsorbStrategy greedy = new GreedyAbsorbStrategy();
+
+  MoveLimitCalibrator(int slack, int exactRegions, long budgetNanos) {
+    this.slack = slack;
+    this.exactRegions = exactRegions;
+    this.budgetNanos = budgetNanos;
+  }
+
+  // returns the move limit for the given game, whose regions have been labeled, or
+  // the game's default limit if not even the greedy estimate finished in time
+  int calibrate(FloodItGame game) {
+    long start = System.nanoTime();
+    RegionState state = game.searchState();
+    int estimate = this.greedyMoves(state.copy(), game.numColors, start);
+    if (estimate == -1) {
+      return game.defaultMaxClicks();
+    }
+
+    if (state.graph.count <= this.exactRegions) {
+      long left = this.budgetNanos - (System.nanoTime() - start);
+      int[] solution = new OptimalSolver(state, game.numColors, 12, Long.MAX_VALUE, left)
+          .solve();
+      if (solution != null) {
+        estimate = solution.length;
+      }
+    }
+    return estimate + this.slack;
+  }
+
+  // returns how many moves it takes to flood the given state by always taking the
+  // color that absorbs the most cells, or -1 if the time ran out first
+  // EFFECT: floods the given state
+  int greedyMoves(RegionState state, int numColors, long start) {
+    IntList absorbed = new IntList();
+    int moves = 0;
+    while (!state.allFlooded()) {
+      if (System.nanoTime() - start > this.budgetNanos) {
+        return -1;
+      }
+      absorbed.clear();
+      state.absorb(this.greedy.bestColor(state, numColors), absorbed);
+      moves++;
+    }
+    return moves;
+  }
+}
+
+// Plays the first move of a shortest solution, falling back on a lookahead when the
+// board is too big to solve within the node limit
+class OptimalStrategy implements Strategy {
+  long nodeLimit;
+
+  OptimalStrategy(long nodeLimit) {
+    this.nodeLimit = nodeLimit;
+  }
+
+  public int nextColor(FloodItGame game) {
+    int[] solution = new OptimalSolver(game.searchState(), game.numColors, 16, this.nodeLimit)
+        .solve();
+    if (solution == null) {
+      return new LookaheadStrategy(3, Long.MAX_VALUE).nextColor(game);
+    }
+    return solution[0];
+  }
+}
+
+// A saved game: a header with the board's size, palette, seed and move limit, the
+// starting board at 4 bits per cell, and a log of one byte per move that grows at the
+// end of the file as the game is played. Files are read by mapping them into memory,
+// so large archives of games load without copying
+class GameFile {
+  // "FLIT"
+  static final int MAGIC = 0x464C4954;
+  static final int VERSION = 1;
+
+  // magic, version, number of colors, side length, seed, board number and move limit
+  static final int HEADER_BYTES = 4 + 1 + 1 + 4 + 8 + 4 + 4;
+
+  // the most colors a cell of 4 bits can hold
+  static final int MAX_COLORS = 16;
+
+  // the longest side a board can have with every cell indexed by an int
+  static final int MAX_SIDE = 46340;
+
+  Path path;
+
+  // open for appending moves while a game is being recorded
+  FileChannel channel;
+  ByteBuffer move = ByteBuffer.allocate(1);
+
+  GameFile(Path path) {
+    this.path = path;
+  }
+
+  // returns where the board starts in a file with the given number of colors
+  static int boardStart(int numColors) {
+    return HEADER_BYTES + 3 * numColors;
+  }
+
+  // EFFECT: replaces the contents of this file with the header and board of the given
+  // game, keeping it open for the moves
+  void create(FloodItGame game) throws IOException {
+    if (game.numColors > MAX_COLORS) {
+      throw new IllegalArgumentException(
+          "Only games of up to " + MAX_COLORS + " colors can be saved: " + game.numColors);
+    }
+    Board board = game.board;
+    Palette palette = new Palette(game.numColors);
+    ByteBuffer out = ByteBuffer
+        .allocate(GameFile.boardStart(game.numColors) + (board.size() + 1) / 2);
+    out.putInt(MAGIC).put((byte) VERSION).put((byte) game.numColors).putInt(game.sideLength)
+        .putLong(game.seed).putInt(game.boardsGenerated - 1).putInt(game.maxClicksAllowed);
+    for (int i = 0; i < game.numColors; i++) {
+      Color color = palette.color(i);
+      out.put((byte) color.getRed()).put((byte) color.getGreen()).put((byte) color.getBlue());
+    }
+
+    // two cells to a byte, the first one in the low bits
+    for (int i = 0; i < board.size(); i += 2) {
+      int second = 0;
+      if (i + 1 < board.size()) {
+        second = board.color(i + 1);
+      }
+      out.put((byte) (board.color(i) | second << 4));
+    }
+    out.flip();
+
+    this.close();
+    this.channel = FileChannel.open(this.path, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    while (out.hasRemaining()) {
+      this.channel.write(out);
+    }
+  }
+
+  // EFFECT: adds the given move to the end of the log
+  void append(int color) throws IOException {
+    this.move.clear();
+    this.move.put(0, (byte) color);
+    this.channel.write(this.move);
+  }
+
+  // EFFECT: stops appending to this file
+  void close() throws IOException {
+    if (this.channel != null) {
+      this.channel.close();
+      this.channel = null;
+    }
+  }
+
+  // returns the game saved in this file, read straight from its mapped bytes
+  GameRecord read() throws IOException {
+    try (FileChannel in = FileChannel.open(this.path, StandardOpenOption.READ)) {
+      return new GameRecord(in.map(FileChannel.MapMode.READ_ONLY, 0, in.size()));
+    }
+  }
+
+  // prints what was saved in every file named on the command line: file...
+  public static void main(String[] args) throws IOException {
+    for (String name : args) {
+      GameReplay replay = new GameReplay(new GameFile(Paths.get(name)).read());
+      replay.playAll();
+      FloodItGame game = replay.game;
+      System.out.println(name + ": " + game.sideLength + "x" + game.sideLength + ", "
+          + game.numColors + " colors, seed " + game.seed + ", " + game.userClicksCount + "/"
+          + game.maxClicksAllowed + " moves, " + (game.won() ? "won" : "not won"));
+    }
+  }
+}
+
+// A game saved in a GameFile, with the header decoded once and the cells and moves
+// read out of the saved bytes only when they are asked for
+class GameRecord {
+  ByteBuffer bytes;
+
+  int numColors;
+  int sideLength;
+  long seed;
+  int boardNumber;
+  int maxClicksAllowed;
+
+  // where the board and the move log start in the bytes
+  int boardStart;
+  int movesStart;
+
+  GameRecord(ByteBuffer bytes) throws IOException {
+    if (bytes.limit() < GameFile.HEADER_BYTES || bytes.getInt(0) != GameFile.MAGIC) {
+      throw new IOException("Not a saved game");
+    }
+    if (bytes.get(4) != GameFile.VERSION) {
+      throw new IOException("Unknown saved game version: " + bytes.get(4));
+    }
+    this.bytes = bytes;
+    this.numColors = bytes.get(5);
+    this.sideLength = bytes.getInt(6);
+    this.seed = bytes.getLong(10);
+    this.boardNumber = bytes.getInt(18);
+    this.maxClicksAllowed = bytes.getInt(22);
+    if (this.sideLength < 1 || this.sideLength > GameFile.MAX_SIDE) {
+      throw new IOException("Saved game has a side length of " + this.sideLength);
+    }
+    if (this.numColors < 1 || this.numColors > GameFile.MAX_COLORS) {
+      throw new IOException("Saved game has " + this.numColors + " colors");
+    }
+    this.boardStart = GameFile.boardStart(this.numColors);
+    this.movesStart = this.boardStart + (this.size() + 1) / 2;
+    if (bytes.limit() < this.movesStart) {
+      throw new IOException("Saved game ends at byte " + bytes.limit()
+          + " before its board ends at byte " + this.movesStart);
+    }
+    this.checkColors();
+  }
+
+  // EFFECT: throws an exception if a saved cell or move has a color past the saved
+  // number of colors, so that a damaged file fails here instead of part way through a
+  // game
+  void checkColors() throws IOException {
+    for (int cell = 0; cell < this.size(); cell++) {
+      if (this.color(cell) >= this.numColors) {
+        throw new IOException("Saved cell " + cell + " has color " + this.color(cell)
+            + " of a game of " + this.numColors + " colors");
+      }
+    }
+    for (int i = 0; i < this.moveCount(); i++) {
+      if (this.move(i) >= this.numColors) {
+        throw new IOException("Saved move " + i + " plays color " + this.move(i)
+            + " of a game of " + this.numColors + " colors");
+      }
+    }
+  }
+
+  // returns the number of cells on the saved board
+  int size() {
+    return this.sideLength * this.sideLength;
+  }
+
+  // returns the color index the given cell started the game with
+  int color(int cell) {
+    int pair = this.bytes.get(this.boardStart + cell / 2);
+    if (cell % 2 == 0) {
+      return pair & 15;
+    }
+    return (pair >> 4) & 15;
+  }
+
+  // returns the color index of every cell at the start of the game
+  byte[] cells() {
+    byte[] cells = new byte[this.size()];
+    for (int i = 0; i < cells.length; i++) {
+      cells[i] = (byte) this.color(i);
+    }
+    return cells;
+  }
+
+  // returns the color the game drew the given color index in
+  Color paletteColor(int index) {
+    int at = GameFile.HEADER_BYTES + 3 * index;
+    return new Color(this.bytes.get(at) & 255, this.bytes.get(at + 1) & 255,
+        this.bytes.get(at + 2) & 255);
+  }
+
+  // returns the number of moves logged
+  int moveCount() {
+    return this.bytes.limit() - this.movesStart;
+  }
+
+  // returns the color played on the given move, counting from 0
+  int move(int index) {
+    return this.bytes.get(this.movesStart + index) & 255;
+  }
+}
+
+// Plays a saved game back through a fresh game on its saved board, one logged move
+// at a time
+class GameReplay {
+  GameRecord record;
+  FloodItGame game;
+
+  // the number of logged moves played back so far
+  int played = 0;
+
+  GameReplay(GameRecord record) {
+    this.record = record;
+    this.game = new FloodItGame(record.sideLength, record.numColors, record.seed);
+    this.game.startFrom(record);
+  }
+
+  // returns true if every logged move has been played
+  boolean finished() {
+    return this.played == this.record.moveCount();
+  }
+
+  // EFFECT: plays the next logged move
+  // returns the color played
+  int step() {
+    int color = this.record.move(this.played);
+    this.played++;
+    this.game.play(color);
+    return color;
+  }
+
+  // EFFECT: plays every logged move left
+  void playAll() {
+    while (!this.finished()) {
+      this.step();
+    }
+  }
+}
+
+// The outcome of playing one game until the board was flooded
+class GameResult {
+  boolean won;
+  int moves;
+  int maxClicksAllowed;
+
+  GameResult(boolean won, int moves, int maxClicksAllowed) {
+    this.won = won;
+    this.moves = moves;
+    this.maxClicksAllowed = maxClicksAllowed;
+  }
+}
+
+// The totals over many played games
+class SimulationResult {
+  int games = 0;
+  int wins = 0;
+  long totalMoves = 0;
+  long totalMaxClicks = 0;
+  int mostMoves = 0;
+
+  // EFFECT: counts the given game in these totals
+  void add(GameResult result) {
+    this.games++;
+    if (result.won) {
+      this.wins++;
+    }
+    this.totalMoves += result.moves;
+    this.totalMaxClicks += result.maxClicksAllowed;
+    this.mostMoves = Math.max(this.mostMoves, result.moves);
+  }
+
+  // EFFECT: counts every game of the given totals in these totals
+  void combine(SimulationResult other) {
+    this.games += other.games;
+    this.wins += other.wins;
+    this.totalMoves += other.totalMoves;
+    this.totalMaxClicks += other.totalMaxClicks;
+    this.mostMoves = Math.max(this.mostMoves, other.mostMoves);
+  }
+
+  // returns the fraction of games won
+  double winRate() {
+    return (double) this.wins / this.games;
+  }
+
+  // returns the average number of moves it took to flood a board
+  double averageMoves() {
+    return (double) this.totalMoves / this.games;
+  }
+
+  // returns the average move limit
+  double averageMaxClicks() {
+    return (double) this.totalMaxClicks / this.games;
+  }
+
+  // returns a summary of these totals for printing
+  String report() {
+    return String.format("games %d, won %.2f%%, moves %.2f avg / %d max, limit %.2f avg",
+        this.games, 100 * this.winRate(), this.averageMoves(), this.mostMoves,
+        this.averageMaxClicks());
+  }
+}
+
+// Plays many seeded games without a display to see how often a strategy floods the
+// board within the move limit
+class FloodItSimulator {
+  int sideLength;
+  int numColors;
+  Strategy strategy;
+
+  FloodItSimulator(int sideLength, int numColors, Strategy strategy) {
+    this.sideLength = sideLength;
+    this.numColors = numColors;
+    this.strategy = strategy;
+  }
+
+  // returns the result of playing the game with the given seed until the board is
+  // flooded, giving up once the strategy has had more moves than there are cells
+  GameResult playGame(long seed) {
+    FloodItGame game = new FloodItGame(this.sideLength, this.numColors, seed);
+    game.initBoard();
+    game.initNeighbors();
+    int giveUp = game.board.size() * this.numColors;
+    while (!game.wholeBoardFlooded() && game.userClicksCount < giveUp) {
+      game.play(this.strategy.nextColor(game));
+    }
+    return new GameResult(game.won(), game.userClicksCount, game.maxClicksAllowed);
+  }
+
+  // returns the totals of playing the games with every seed from first to last, split
+  // across the given number of threads
+  SimulationResult run(long firstSeed, long lastSeed, int threads)
+      throws InterruptedException, ExecutionException {
+    ForkJoinPool pool = new ForkJoinPool(threads);
+    try {
+      return pool.submit(() -> LongStream.rangeClosed(firstSeed, lastSeed).parallel()
+          .mapToObj(this::playGame)
+          .collect(SimulationResult::new, SimulationResult::add, SimulationResult::combine))
+          .get();
+    }
+    finally {
+      pool.shutdown();
+    }
+  }
+
+  // returns the strategy with the given name
+  static Strategy strategyNamed(String name) {
+    if (name.equals("random")) {
+      return new RandomStrategy();
+    }
+    if (name.equals("greedy")) {
+      return new GreedyAbsorbStrategy();
+    }
+    if (name.equals("frontier")) {
+      return new GreedyFrontierStrategy();
+    }
+    if (name.equals("lookahead")) {
+      return new LookaheadStrategy(3, Long.MAX_VALUE);
+    }
+    if (name.equals("optimal")) {
+      return new OptimalStrategy(5000000);
+    }
+    throw new IllegalArgumentException("Unknown strategy: " + name);
+  }
+
+  // runs a batch of games from the command line:
+  // sideLength numColors firstSeed lastSeed strategy [threads]
+  public static void main(String[] args) throws InterruptedException, ExecutionException {
+    if (args.length < 5) {
+      System.err.println(
+          "usage: FloodItSimulator sideLength numColors firstSeed lastSeed strategy [threads]");
+      System.exit(2);
+    }
+    int threads = Runtime.getRuntime().availableProcessors();
+    if (args.length > 5) {
+      threads = Integer.parseInt(args[5]);
+    }
+    FloodItSimulator simulator = new FloodItSimulator(Integer.parseInt(args[0]),
+        Integer.parseInt(args[1]), FloodItSimulator.strategyNamed(args[4]));
+
+    long start = System.nanoTime();
+    SimulationResult result = simulator.run(Long.parseLong(args[2]), Long.parseLong(args[3]),
+        threads);
+    long millis = (System.nanoTime() - start) / 1000000;
+    System.out.println(result.report());
+    System.out.println("took " + millis + " ms on " + threads + " threads");
+  }
+}
+
+// One game hosted by a SessionManager. Commands sent to it wait in its mailbox and
+// run one at a time, in the order they were sent, on a virtual thread that only
+// exists while there are commands waiting. A session that has gone idle can
+// hibernate, keeping just what it takes to rebuild its game: the seed, which board
+// of the seed it is on, its move limit and the moves played so far
+class GameSession {
+  String id;
+  int sideLength;
+  int numColors;
+  long seed;
+
+  // the game while the session is awake, or null while it hibernates
+  FloodItGame game;
+
+  // the board of the seed the game is on, and its move limit, or -1 before the
+  // first board has been made
+  int boardNumber = 0;
+  int maxClicksAllowed = -1;
+
+  // the moves played into the board, kept only while the session hibernates
+  byte[] moves = new byte[0];
+
+  // tasks waiting to run, and whether a thread is running them
+  ConcurrentLinkedQueue<Runnable> mailbox = new ConcurrentLinkedQueue<Runnable>();
+  AtomicBoolean draining = new AtomicBoolean(false);
+
+  // when the last task finished, in System.nanoTime
+  volatile long lastActive;
+
+  GameSession(String id, int sideLength, int numColors, long seed) {
+    this.id = id;
+    this.sideLength = sideLength;
+    this.numColors = numColors;
+    this.seed = seed;
+    this.lastActive = System.nanoTime();
+  }
+
+  // returns the result the given command will give once it has run on this
+  // session's game, after every task sent before it
+  <T> CompletableFuture<T> send(Function<FloodItGame, T> command, Executor executor) {
+    return this.enqueue(() -> command.apply(this.awake()), executor);
+  }
+
+  // returns the result the given task will give once it has run, after every task
+  // sent before it, without waking the session
+  <T> CompletableFuture<T> enqueue(Supplier<T> task, Executor executor) {
+    CompletableFuture<T> result = new CompletableFuture<T>();
+    this.mailbox.add(() -> {
+      try {
+        result.complete(task.get());
+      }
+      catch (RuntimeException e) {
+        result.completeExceptionally(e);
+      }
+    });
+    this.schedule(executor);
+    return result;
+  }
+
+  // EFFECT: starts a thread on the given executor to run the waiting tasks, unless
+  // one is running them already
+  void schedule(Executor executor) {
+    if (!this.mailbox.isEmpty() && this.draining.compareAndSet(false, true)) {
+      executor.execute(() -> this.drain(executor));
+    }
+  }
+
+  // EFFECT: runs the waiting tasks in order until there are none left, then
+  // schedules again in case one arrived after the last check
+  void drain(Executor executor) {
+    Runnable task = this.mailbox.poll();
+    while (task != null) {
+      task.run();
+      this.lastActive = System.nanoTime();
+      task = this.mailbox.poll();
+    }
+    this.draining.set(false);
+    this.schedule(executor);
+  }
+
+  // returns the game of this session, rebuilding it if the session hibernates
+  FloodItGame awake() {
+    if (this.game == null) {
+      this.game = new FloodItGame(this.sideLength, this.numColors, this.seed);
+      if (this.maxClicksAllowed == -1) {
+        this.game.initBoard();
+        this.game.initNeighbors();
+      }
+      else {
+        this.game.resume(this.boardNumber, this.maxClicksAllowed, this.moves);
+      }
+      this.moves = new byte[0];
+    }
+    return this.game;
+  }
+
+  // EFFECT: drops the game of this session, keeping its board, move limit and the
+  // moves played so far, but not any undone moves that could have been redone
+  // returns true if the session was awake
+  boolean hibernate() {
+    if (this.game == null) {
+      return false;
+    }
+    this.boardNumber = this.game.boardsGenerated - 1;
+    this.maxClicksAllowed = this.game.maxClicksAllowed;
+    this.moves = new byte[this.game.history.current];
+    for (int i = 0; i < this.moves.length; i++) {
+      this.moves[i] = (byte) this.game.history.moves.get(i);
+    }
+    this.game.stopRecording();
+    this.game = null;
+    return true;
+  }
+}
+
+// Hosts many games at once, each one a GameSession found by its ID. Tasks run on
+// virtual threads, so waiting sessions hold no thread, and idle sessions can be
+// hibernated so that they hold little more than their moves
+class SessionManager {
+  ConcurrentHashMap<String, GameSession> sessions = new ConcurrentHashMap<String, GameSession>();
+  ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+  // EFFECT: adds a session with the given ID playing games of the given size and
+  // number of colors from the given seed, which builds its first board when it is
+  // first sent a command
+  void open(String id, int sideLength, int numColors, long seed) {
+    if (this.sessions.putIfAbsent(id, new GameSession(id, sideLength, numColors,
+        seed)) != null) {
+      throw new IllegalArgumentException("Session " + id + " is already open");
+    }
+  }
+
+  // returns the session with the given ID
+  GameSession session(String id) {
+    GameSession session = this.sessions.get(id);
+    if (session == null) {
+      throw new IllegalArgumentException("No session named " + id);
+    }
+    return session;
+  }
+
+  // returns the result the given command will give once it has run on the game of
+  // the session with the given ID, after every task sent to that session before it
+  <T> CompletableFuture<T> submit(String id, Function<FloodItGame, T> command) {
+    return this.session(id).send(command, this.executor);
+  }
+
+  // returns whether the game of the session with the given ID will have played the
+  // given color
+  CompletableFuture<Boolean> play(String id, int color) {
+    return this.submit(id, game -> game.play(color));
+  }
+
+  // returns the number of moves the game of the session with the given ID will have
+  // made playing the given colors, all in one task
+  CompletableFuture<Integer> playAll(String id, int[] colors) {
+    return this.submit(id, game -> game.playAll(colors));
+  }
+
+  // EFFECT: hibernates every session that has been idle for at least the given time
+  // returns when every one of them has hibernated
+  CompletableFuture<Void> hibernateIdle(long idleNanos) {
+    long now = System.nanoTime();
+    ArrayList<CompletableFuture<Boolean>> asked = new ArrayList<CompletableFuture<Boolean>>();
+    for (GameSession session : this.sessions.values()) {
+      if (session.game != null && now - session.lastActive >= idleNanos) {
+        asked.add(session.enqueue(session::hibernate, this.executor));
+      }
+    }
+    return CompletableFuture.allOf(asked.toArray(new CompletableFuture<?>[asked.size()]));
+  }
+
+  // EFFECT: removes the session with the given ID, after the tasks already sent to it
+  // have run
+  CompletableFuture<Boolean> close(String id) {
+    return this.session(id).enqueue(() -> this.sessions.remove(id) != null, this.executor);
+  }
+
+  // returns the number of open sessions
+  int size() {
+    return this.sessions.size();
+  }
+
+  // EFFECT: stops taking tasks, and waits for the ones already sent to run
+  void shutdown() throws InterruptedException {
+    this.executor.shutdown();
+    this.executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+  }
+}
+
+// Drives a SessionManager from many clients at once, each on a virtual thread of its
+// own playing a game to the end one command at a time, and reports the throughput
+// and the memory each session takes once they have all hibernated
+class SessionLoadDriver {
+  int sessions;
+  int sideLength;
+  int numColors;
+
+  // picks each client's next color
+  Strategy player = new GreedyAbsorbStrategy();
+
+  SessionLoadDriver(int sessions, int sideLength, int numColors) {
+    this.sessions = sessions;
+    this.sideLength = sideLength;
+    this.numColors = numColors;
+  }
+
+  // returns the number of commands the client of the session with the given ID sent
+  // to play its game to the end
+  int playClient(SessionManager manager, String id) {
+    int commands = 0;
+    boolean over = false;
+    while (!over) {
+      int color = manager.submit(id, game -> game.hint(this.player)).join();
+      over = manager.submit(id, game -> {
+        game.play(color);
+        return game.wholeBoardFlooded();
+      }).join();
+      commands += 2;
+    }
+    return commands;
+  }
+
+  // EFFECT: plays a game in every session at once, each from a client of its own, and
+  // records the number of commands each client sent
+  void playAll(SessionManager manager, int[] commands) throws InterruptedException {
+    Thread[] clients = new Thread[this.sessions];
+    for (int s = 0; s < this.sessions; s++) {
+      int session = s;
+      clients[s] = Thread.ofVirtual().start(() -> commands[session] = this.playClient(
+          manager, "s" + session));
+    }
+    for (Thread client : clients) {
+      client.join();
+    }
+  }
+
+  // returns a report of playing a game in every session at once, then hibernating
+  // them all
+  String run() throws InterruptedException {
+    long heapBefore = SessionLoadDriver.usedHeap();
+    SessionManager manager = new SessionManager();
+    for (int s = 0; s < this.sessions; s++) {
+      manager.open("s" + s, this.sideLength, this.numColors, s);
+    }
+
+    long start = System.nanoTime();
+    int[] commands = new int[this.sessions];
+    this.playAll(manager, commands);
+    long elapsed = System.nanoTime() - start;
+
+    // the threads that ran the last tasks can still hold on to them until they end
+    manager.hibernateIdle(0).join();
+    manager.shutdown();
+    long idleBytes = (SessionLoadDriver.usedHeap() - heapBefore) / this.sessions;
+    long total = Arrays.stream(commands).asLongStream().sum();
+    return String.format("%d sessions of %dx%d, %d colors: %d commands in %.1f ms, "
+        + "%.0f commands/s, %d bytes per hibernated session", this.sessions,
+        this.sideLength, this.sideLength, this.numColors, total, elapsed / 1e6,
+        total * 1e9 / elapsed, idleBytes);
+  }
+
+  // returns the bytes of heap in use after collecting garbage
+  static long usedHeap() {
+    System.gc();
+    Runtime runtime = Runtime.getRuntime();
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  // runs the load from the command line: [sessions [sideLength numColors]]
+  public static void main(String[] args) throws InterruptedException {
+    int sessions = 100000;
+    int sideLength = 14;
+    int numColors = 6;
+    if (args.length >= 1) {
+      sessions = Integer.parseInt(args[0]);
+    }
+    if (args.length >= 3) {
+      sideLength = Integer.parseInt(args[1]);
+      numColors = Integer.parseInt(args[2]);
+    }
+    System.out.println(new SessionLoadDriver(sessions, sideLength, numColors).run());
+  }
+}
+
+// Turns the time passed on a clock into whole steps of a fixed length, so that a
+// world moves at the same speed however often it is drawn. When drawing falls behind,
+// every step missed is taken before the next frame, up to a limit past which the time
+// is dropped instead of caught up on
+class StepClock {
+  // returns the current time in nanoseconds
+  LongSupplier clock;
+
+  long stepNanos;
+
+  // the most steps taken at once, so that a long stall doesn't turn into a long
+  // catch up
+  int maxSteps;
+
+  // the time up to which steps have been taken
+  long steppedTo;
+
+  StepClock(LongSupplier clock, long stepNanos, int maxSteps) {
+    if (stepNanos < 1 || maxSteps < 1) {
+      throw new IllegalArgumentException("Steps of " + stepNanos + " ns, " + maxSteps
+          + " at a time, never move forward");
+    }
+    this.clock = clock;
+    this.stepNanos = stepNanos;
+    this.maxSteps = maxSteps;
+    this.steppedTo = clock.getAsLong();
+  }
+
+  // EFFECT: counts the steps due since the last ones taken as taken, dropping the
+  // time of any past the most taken at once
+  // returns the number of steps due
+  int due() {
+    long now = this.clock.getAsLong();
+    long steps = (now - this.steppedTo) / this.stepNanos;
+    if (steps > this.maxSteps) {
+      this.steppedTo = now - (now - this.steppedTo) % this.stepNanos;
+      return this.maxSteps;
+    }
+    this.steppedTo += steps * this.stepNanos;
+    return (int) steps;
+  }
+}
+
+// represents the class FloodItWorld
+class FloodItWorld extends World {
+  // the game being displayed
+  FloodItGame game;
+
+  final int CELL_SIZE = 25;
+
+  // the width of the square the board is fitted into, between the title and the score
+  final int VIEW_SIZE = 300;
+
+  // the part of the board in view, zoomed and panned
+  Viewport viewport;
+
+  // the color drawn for each color index
+  Palette palette;
+
+  WorldScene gameBoard;
+  final int BOARD_POSITION_IN_WINDOW = 250;
+
+  // the cached image of the board
+  BoardRenderer renderer;
+
+  // the message shown once the game is won or lost, or null while it is going on
+  String endMessage;
+
+  // looks ahead for hints within the time of one frame
+  Strategy hintStrategy = new LookaheadStrategy(4, 16000000);
+
+  // the color suggested by the last hint, or -1 if none was asked for since the
+  // last move
+  int hintColor = -1;
+
+  // fields for waterfalling, which recolors the flooded cells one ring at a time,
+  // where ring k holds the cells whose larger coordinate is k
+  int propogateIndex = 0;
+  boolean currentlyWaterfalling = false;
+
+  // the most steps a waterfall takes, however many rings the board has
+  final int WATERFALL_STEPS = 30;
+
+  // set while waterfalling a batch of moves, after which the cells left to recolor
+  // may not touch the first cell, so the waterfall goes on to the last ring instead of
+  // stopping at the first with nothing to recolor
+  boolean waterfallToEdge = false;
+
+  // the colors clicked during a waterfall, played as one batch on the next step
+  IntList queuedMoves = new IntList();
+
+  // steps the world 60 times a second, however often it is drawn
+  StepClock clock = new StepClock(System::nanoTime, 16666667, 5);
+
+  // measures frames, and the moves and boards of the game, if this world is being
+  // measured
+  GameMetrics metrics;
+
+  // two arg constructor --- not seeded
+  FloodItWorld(int sideLength, int numColors) {
+    this.game = new FloodItGame(sideLength, numColors);
+    this.viewport = new Viewport(sideLength, this.BOARD_POSITION_IN_WINDOW,
+        this.BOARD_POSITION_IN_WINDOW, this.VIEW_SIZE, this.CELL_SIZE);
+
+    gameBoard = new WorldScene(500, 500);
+  }
+
+  // two arg constructor -- seeded
+  FloodItWorld(int sideLength, int numColors, int seed) {
+    this.game = new FloodItGame(sideLength, numColors, seed);
+    this.viewport = new Viewport(sideLength, this.BOARD_POSITION_IN_WINDOW,
+        this.BOARD_POSITION_IN_WINDOW, this.VIEW_SIZE, this.CELL_SIZE);
+
+    gameBoard = new WorldScene(500, 500);
+  }
+
+  // four arg constructor -- seeded, flooding with the engine of the given name
+  FloodItWorld(int sideLength, int numColors, int seed, String engineName) {
+    this.game = new FloodItGame(sideLength, numColors, seed, engineName);
+    this.viewport = new Viewport(sideLength, this.BOARD_POSITION_IN_WINDOW,
+        this.BOARD_POSITION_IN_WINDOW, this.VIEW_SIZE, this.CELL_SIZE);
+
+    gameBoard = new WorldScene(500, 500);
+  }
+
+  // EFFECT: inits the palette the board is drawn in
+  void initColors() {
+    this.palette = new Palette(this.game.numColors);
+  }
+
+  // EFFECT: labels the regions of the board and floods the cells that start off
+  // connected to the first cell by the same color
+  void initNeighbors() {
+    this.game.initNeighbors();
+  }
+
+  // EFFECT: initializes the board with a user given size, giving each cell a random
+  // color
+  void initBoard() {
+    this.initColors();
+    this.game.initBoard();
+    this.initRenderer();
+  }
+
+  // EFFECT: draws the board of the game in the palette, repainting the image drawn
+  // for the last board if the board and palette are the same ones it was drawn with
+  void initRenderer() {
+    if (this.renderer != null && this.renderer.board == this.game.board
+        && this.renderer.palette == this.palette) {
+      this.renderer.markAll();
+    }
+    else {
+      this.renderer = new BoardRenderer(this.game.board, this.palette);
+    }
+  }
+
+  // EFFECT: starts over on the next board of the game, in the storage and image of
+  // the last one
+  void restart() {
+    this.game.restart();
+    this.initRenderer();
+    this.currentlyWaterfalling = false;
+    this.waterfallToEdge = false;
+    this.queuedMoves.clear();
+    this.propogateIndex = 0;
+    this.hintColor = -1;
+    this.endMessage = null;
+  }
+
+  // EFFECT: recolors the flooded cells of the given waterfall ring that don't have
+  // the flood color yet
+  // returns the number of cells recolored
+  int recolorRing(int ring) {
+    Board board = this.game.board;
+    int recolored = 0;
+    for (int j = 0; j <= ring; j++) {
+      if (this.recolor(board.index(ring, j))) {
+        recolored++;
+      }
+      if (j < ring && this.recolor(board.index(j, ring))) {
+        recolored++;
+      }
+    }
+    return recolored;
+  }
+
+  // EFFECT: gives the given cell the flood color if it is flooded and doesn't have
+  // it yet
+  // returns true if the cell was recolored
+  boolean recolor(int cell) {
+    Board board = this.game.board;
+    if (board.isFlooded(cell) && board.color(cell) != this.game.floodColor) {
+      board.setColor(cell, this.game.floodColor);
+      this.renderer.markDirty(cell);
+      return true;
+    }
+    return false;
+  }
+
+  // draws the cells of the board in view in their current state, repainting only the
+  // cells that changed
+  WorldImage drawBoard() {
+    return this.viewport.visible(this.renderer.render());
+  }
+
+  // EFFECT: measures every frame of this world, and every move and board of its
+  // game, with the given metrics
+  void measure(GameMetrics metrics) {
+    this.metrics = metrics;
+    this.game.metrics = metrics;
+  }
+
+  // creates image of flood it world, measuring it if it is one of the frames measured
+  public WorldScene makeScene() {
+    if (this.metrics != null && this.metrics.measureFrame()) {
+      return this.measuredScene();
+    }
+    return this.buildScene();
+  }
+
+  // returns the image of flood it world, and passes the waterfall ring it is at and the
+  // time and memory it took to the metrics
+  WorldScene measuredScene() {
+    int ring = -1;
+    if (this.currentlyWaterfalling) {
+      ring = this.propogateIndex;
+    }
+    long bytes = this.metrics.allocatedBytes();
+    long start = System.nanoTime();
+    WorldScene scene = this.buildScene();
+    long nanos = System.nanoTime() - start;
+    this.metrics.framed(ring, nanos, this.metrics.allocatedBytes() - bytes);
+    return scene;
+  }
+
+  // returns the image of flood it world as it is, without moving it forward
+  WorldScene buildScene() {
+    // every frame starts from an empty scene so images don't pile up in it
+    this.gameBoard = new WorldScene(500, 500);
+    if (this.endMessage != null) {
+      this.gameBoard.placeImageXY(new TextImage(this.endMessage, 30, Color.black), 250, 70);
+    }
+    gameBoard.placeImageXY(new TextImage("Flood It", 30, Color.black), 250, 40);
+    gameBoard.placeImageXY(new RectangleImage(100, 100, OutlineMode.SOLID, Color.white), 250, 450);
+    gameBoard.placeImageXY(new TextImage(
+        this.game.userClicksCount + "/" + this.game.maxClicksAllowed, 30, Color.black), 250, 450);
+    gameBoard.placeImageXY(new TextImage(this.game.percentFlooded() + "% flooded, "
+        + this.game.board.colorsRemaining() + " colors left", 13, Color.black), 250, 485);
+    if (this.hintColor != -1) {
+      gameBoard.placeImageXY(new TextImage("hint", 13, Color.black), 340, 430);
+      gameBoard.placeImageXY(new RectangleImage(this.CELL_SIZE, this.CELL_SIZE, OutlineMode.SOLID,
+          this.palette.color(this.hintColor)), 340, 455);
+    }
+    gameBoard.placeImageXY(this.drawBoard(), this.viewport.imageX(), this.viewport.imageY());
+    return gameBoard;
+  }
+
+  // returns the index of the pressed cell based on given position, or -1 if no cell
+  // is drawn there
+  int pressedCell(Posn pos) {
+    return this.viewport.cellAt(pos.x, pos.y);
+  }
+
+  // handles ticking of the clock, taking every step of the world due since the last
+  // tick
+  public void onTick() {
+    int steps = this.clock.due();
+    for (int i = 0; i < steps; i++) {
+      this.step();
+    }
+  }
+
+  // EFFECT: moves the world one fixed step forward, playing the moves clicked since
+  // the last step and waterfalling the rings that fall in this one
+  void step() {
+    if (this.queuedMoves.size > 0) {
+      this.playBatch(this.queuedMoves.items, this.queuedMoves.size);
+      this.queuedMoves.clear();
+    }
+    int rings = this.ringsPerStep();
+    for (int i = 0; i < rings && this.currentlyWaterfalling; i++) {
+      this.waterfallRing();
+    }
+  }
+
+  // returns the number of rings waterfalled in one step, one unless the board has
+  // more rings than a waterfall has steps
+  int ringsPerStep() {
+    return (this.game.sideLength + this.WATERFALL_STEPS - 1) / this.WATERFALL_STEPS;
+  }
+
+  // EFFECT: recolors the next ring of the waterfall, and ends the waterfall, and the
+  // game if it was won or lost, once there is nothing left to recolor
+  void waterfallRing() {
+    // the cells flooded before this move are connected to the first cell, so once
+    // a ring has nothing to recolor neither does any ring after it
+    int recolored = this.recolorRing(this.propogateIndex);
+
+    if (recolored == 0 && !this.waterfallToEdge
+        || this.propogateIndex == this.game.sideLength - 1) {
+      this.currentlyWaterfalling = false;
+      this.waterfallToEdge = false;
+      this.propogateIndex = 0;
+
+      // this means the user has won the game
+      if (this.game.won()) {
+        this.endScreen("You Win");
+      }
+
+      // this means user has lost the game
+      else if (this.game.outOfMoves()) {
+        this.endScreen("You Lose");
+      }
+    }
+    else {
+      this.propogateIndex++;
+    }
+  }
+
+  // EFFECT: recolors every ring left in the waterfall at once
+  void finishWaterfall() {
+    while (this.currentlyWaterfalling) {
+      this.waterfallRing();
+    }
+  }
+
+  // EFFECT: adds the given color to the moves to play on the next step, unless it is
+  // the color the flooded region will already have by then, or the game is over
+  void queueMove(int color) {
+    if (this.gameOver()) {
+      return;
+    }
+    int last = this.game.floodColor;
+    if (this.queuedMoves.size > 0) {
+      last = this.queuedMoves.get(this.queuedMoves.size - 1);
+    }
+    if (color != last) {
+      this.queuedMoves.add(color);
+    }
+  }
+
+  // EFFECT: skips the rest of any waterfall and plays the given number of colors from
+  // the start of the given array, with one waterfall for all of them, stopping at the
+  // first one the game is over by, which the skipped waterfall may already have ended
+  void playBatch(int[] colors, int count) {
+    this.finishWaterfall();
+    int played = 0;
+    for (int i = 0; i < count && !this.gameOver(); i++) {
+      if (this.game.play(colors[i])) {
+        played++;
+      }
+    }
+    if (played > 0) {
+      this.currentlyWaterfalling = true;
+      this.waterfallToEdge = played > 1;
+      this.propogateIndex = 0;
+      this.hintColor = -1;
+    }
+  }
+
+  // returns true once the game has been won or lost, which a flooded board or the
+  // last move allowed already decides while its waterfall is still recoloring
+  boolean gameOver() {
+    return this.endMessage != null || this.game.wholeBoardFlooded()
+        || this.game.outOfMoves();
+  }
+
+  // EFFECT: modifies gameBoard, drawing last scene when user wins or loses
+  void endScreen(String msg) {
+    this.endMessage = msg;
+    this.gameBoard = new WorldScene(500, 500);
+    this.gameBoard.placeImageXY(new TextImage(msg, 30, Color.black), 250, 70);
+  }
+
+  // EFFECT: checks every cell on the next frame and waterfalls the flood color over
+  // the flooded region again, after the game went back or forward to another move.
+  // Going back replays moves from an earlier snapshot, which leaves flooded cells in
+  // the colors they started with anywhere in the region, so the waterfall runs to the
+  // last ring instead of stopping at the first one that is already the flood color
+  void moved() {
+    this.renderer.markAll();
+    this.currentlyWaterfalling = true;
+    this.waterfallToEdge = true;
+    this.propogateIndex = 0;
+    this.hintColor = -1;
+    this.endMessage = null;
+  }
+
+  // EFFECT: changes user clicks count in response to key press events
+  public void onKeyEvent(String key) {
+
+    // restarts game on r pressed
+    if (key.equals("r")) {
+      this.restart();
+    }
+
+    // shows the best next color on h pressed
+    if (key.equals("h") && !this.game.wholeBoardFlooded()) {
+      this.hintColor = this.game.hint(this.hintStrategy);
+    }
+
+    // zooms in and out on + and -, and pans a quarter of the view with the arrows
+    if (key.equals("+") || key.equals("=")) {
+      this.viewport.zoomBy(1);
+    }
+    if (key.equals("-")) {
+      this.viewport.zoomBy(-1);
+    }
+    if (key.equals("left") || key.equals("right")) {
+      this.viewport.pan((key.equals("left") ? -1 : 1) * this.VIEW_SIZE / 4, 0);
+    }
+    if (key.equals("up") || key.equals("down")) {
+      this.viewport.pan(0, (key.equals("up") ? -1 : 1) * this.VIEW_SIZE / 4);
+    }
+
+    // takes back the last move on u pressed, and plays it again on y pressed
+    if (!this.currentlyWaterfalling
+        && (key.equals("u") && this.game.undo() || key.equals("y") && this.game.redo())) {
+      this.moved();
+    }
+  }
+
+  // EFFECT: handles mouse clicks with given mouse location and updates the
+  // userClicksCount and water falling, unless the game is over
+  public void onMouseClicked(Posn pos) {
+    int cell = this.pressedCell(pos);
+
+    // if user pressed a cell of the game board in view
+    if (cell != -1 && !this.gameOver()) {
+
+      // a move clicked during a waterfall doesn't wait for it to play out, it cuts it
+      // short on the next step
+      int color = this.game.board.color(cell);
+      if (this.currentlyWaterfalling) {
+        this.queueMove(color);
+      }
+      else if (this.game.play(color)) {
+        this.currentlyWaterfalling = true;
+        this.hintColor = -1;
+      }
+
+    }
+  }
+
+}
+
+// Receives measurements of the hot paths of a game and the world showing it: the
+// moves played, the frames drawn and the boards set up
+interface GameMetrics {
+  // returns true if the next move should be measured, asked once for each
+  boolean measureMove();
+
+  // returns true if the next frame should be measured, asked once for each
+  boolean measureFrame();
+
+  // returns the number of bytes the current thread has allocated so far, or 0 if this
+  // JVM can't count them
+  long allocatedBytes();
+
+  // EFFECT: records a move that absorbed the given number of cells and left the given
+  // number of cells on the frontier, in the given time and bytes allocated
+  void moved(int absorbed, int frontier, long nanos, long bytes);
+
+  // EFFECT: records a frame that waterfalled the given ring, or -1 if none, in the
+  // given time and bytes allocated
+  void framed(int ring, long nanos, long bytes);
+
+  // EFFECT: records a new board of the given number of cells, set up in the given
+  // time and bytes allocated
+  void boardMade(int cells, long nanos, long bytes);
+}
+
+// Commits each measurement as an event of Java Flight Recorder. Moves and frames are
+// only measured while a running recording has their events enabled, so with none
+// running the game doesn't count allocations or the frontier for them at all
+class FlightRecorderMetrics implements GameMetrics {
+  static final EventType MOVE = EventType.getEventType(FloodMoveEvent.class);
+  static final EventType FRAME = EventType.getEventType(FloodFrameEvent.class);
+
+  public boolean measureMove() {
+    return MOVE.isEnabled();
+  }
+
+  public boolean measureFrame() {
+    return FRAME.isEnabled();
+  }
+
+  public long allocatedBytes() {
+    return AllocationCounter.allocatedBytes();
+  }
+
+  public void moved(int absorbed, int frontier, long nanos, long bytes) {
+    FloodMoveEvent event = new FloodMoveEvent();
+    if (event.shouldCommit()) {
+      event.absorbed = absorbed;
+      event.frontier = frontier;
+      event.floodTime = nanos;
+      event.allocated = bytes;
+      event.commit();
+    }
+  }
+
+  public void framed(int ring, long nanos, long bytes) {
+    FloodFrameEvent event = new FloodFrameEvent();
+    if (event.shouldCommit()) {
+      event.ring = ring;
+      event.buildTime = nanos;
+      event.allocated = bytes;
+      event.commit();
+    }
+  }
+
+  public void boardMade(int cells, long nanos, long bytes) {
+    FloodBoardEvent event = new FloodBoardEvent();
+    if (event.shouldCommit()) {
+      event.cells = cells;
+      event.setupTime = nanos;
+      event.allocated = bytes;
+      event.commit();
+    }
+  }
+}
+
+// A move measured by FlightRecorderMetrics
+@Name("floodit.Move")
+@Label("Flood It Move")
+@Category("Flood It")
+class FloodMoveEvent extends Event {
+  @Label("Cells Absorbed")
+  int absorbed;
+
+  @Label("Frontier Cells")
+  int frontier;
+
+  @Label("Flood Time")
+  @Timespan(Timespan.NANOSECONDS)
+  long floodTime;
+
+  @Label("Allocated")
+  @DataAmount(DataAmount.BYTES)
+  long allocated;
+}
+
+// A frame measured by FlightRecorderMetrics
+@Name("floodit.Frame")
+@Label("Flood It Frame")
+@Category("Flood It")
+class FloodFrameEvent extends Event {
+  @Label("Waterfall Ring")
+  int ring;
+
+  @Label("Build Time")
+  @Timespan(Timespan.NANOSECONDS)
+  long buildTime;
+
+  @Label("Allocated")
+  @DataAmount(DataAmount.BYTES)
+  long allocated;
+}
+
+// A new board measured by FlightRecorderMetrics
+@Name("floodit.Board")
+@Label("Flood It Board")
+@Category("Flood It")
+class FloodBoardEvent extends Event {
+  @Label("Cells")
+  int cells;
+
+  @Label("Setup Time")
+  @Timespan(Timespan.NANOSECONDS)
+  long setupTime;
+
+  @Label("Allocated")
+  @DataAmount(DataAmount.BYTES)
+  long allocated;
+}
+
+// Passes on only one in every given number of moves and frames to other metrics, so
+// that measuring can stay on for the price of counting down. Moves and frames are
+// counted down apart, so the frames drawn between moves never decide which moves are
+// measured. Boards are passed on every time
+class SampledMetrics implements GameMetrics {
+  GameMetrics metrics;
+
+  // one in this many moves, and one in this many frames, is measured
+  int every;
+
+  // the number of moves left until the next one measured
+  int movesLeft;
+
+  // the number of frames left until the next one measured
+  int framesLeft;
+
+  // measures the first move and the first frame, then one in every given number of
+  // each after them
+  SampledMetrics(GameMetrics metrics, int every) {
+    if (every < 1) {
+      throw new IllegalArgumentException("Can't measure one in every " + every);
+    }
+    this.metrics = metrics;
+    this.every = every;
+    this.movesLeft = 1;
+    this.framesLeft = 1;
+  }
+
+  public boolean measureMove() {
+    this.movesLeft--;
+    if (this.movesLeft > 0) {
+      return false;
+    }
+    this.movesLeft = this.every;
+    return this.metrics.measureMove();
+  }
+
+  public boolean measureFrame() {
+    this.framesLeft--;
+    if (this.framesLeft > 0) {
+      return false;
+    }
+    this.framesLeft = this.every;
+    return this.metrics.measureFrame();
+  }
+
+  public long allocatedBytes() {
+    return this.metrics.allocatedBytes();
+  }
+
+  public void moved(int absorbed, int frontier, long nanos, long bytes) {
+    this.metrics.moved(absorbed, frontier, nanos, bytes);
+  }
+
+  public void framed(int ring, long nanos, long bytes) {
+    this.metrics.framed(ring, nanos, bytes);
+  }
+
+  public void boardMade(int cells, long nanos, long bytes) {
+    this.metrics.boardMade(cells, nanos, bytes);
+  }
+}
+
+// Adds up every measurement, to report the averages of a session
+class MetricsTotals implements GameMetrics {
+  int moves;
+  long absorbed;
+  long frontier;
+  long moveNanos;
+  long moveBytes;
+
+  int frames;
+  int waterfallFrames;
+  long frameNanos;
+  long frameBytes;
+
+  int boards;
+  long boardNanos;
+  long boardBytes;
+
+  public boolean measureMove() {
+    return true;
+  }
+
+  public boolean measureFrame() {
+    return true;
+  }
+
+  public long allocatedBytes() {
+    return AllocationCounter.allocatedBytes();
+  }
+
+  public void moved(int absorbed, int frontier, long nanos, long bytes) {
+    this.moves++;
+    this.absorbed += absorbed;
+    this.frontier += frontier;
+    this.moveNanos += nanos;
+    this.moveBytes += bytes;
+  }
+
+  public void framed(int ring, long nanos, long bytes) {
+    this.frames++;
+    if (ring != -1) {
+      this.waterfallFrames++;
+    }
+    this.frameNanos += nanos;
+    this.frameBytes += bytes;
+  }
+
+  public void boardMade(int cells, long nanos, long bytes) {
+    this.boards++;
+    this.boardNanos += nanos;
+    this.boardBytes += bytes;
+  }
+
+  // returns the average of every measurement
+  String report() {
+    long moves = Math.max(this.moves, 1);
+    long frames = Math.max(this.frames, 1);
+    long boards = Math.max(this.boards, 1);
+    return String.format("%d moves: %.1f cells absorbed, %.1f on the frontier, %.1f ns, "
+        + "%.1f B\n%d frames, %d waterfalling: %.1f ns, %.1f B\n%d boards: %.1f ns, %.1f B",
+        this.moves, (double) this.absorbed / moves, (double) this.frontier / moves,
+        (double) this.moveNanos / moves, (double) this.moveBytes / moves, this.frames,
+        this.waterfallFrames, (double) this.frameNanos / frames,
+        (double) this.frameBytes / frames, this.boards, (double) this.boardNanos / boards,
+        (double) this.boardBytes / boards);
+  }
+}
+
+// Counts the bytes allocated by the current thread, through the thread bean of JVMs
+// that extend it with an allocation counter, as HotSpot does. Any other JVM, or one
+// with the counter turned off, counts nothing
+class AllocationCounter {
+  // the thread bean, if it counts allocations, or else null
+  static final com.sun.management.ThreadMXBean THREADS = AllocationCounter.countingBean();
+
+  // returns the thread bean of this JVM if it can count allocations, or else null
+  static com.sun.management.ThreadMXBean countingBean() {
+    try {
+      java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+      if (bean instanceof com.sun.management.ThreadMXBean) {
+        com.sun.management.ThreadMXBean counting = (com.sun.management.ThreadMXBean) bean;
+        if (counting.isThreadAllocatedMemorySupported()) {
+          return counting;
+        }
+      }
+    }
+    catch (LinkageError e) {
+      // a JVM without the com.sun.management classes
+    }
+    return null;
+  }
+
+  // returns the number of bytes the current thread has allocated so far, or 0 if this
+  // JVM can't count them
+  static long allocatedBytes() {
+    if (THREADS == null) {
+      return 0;
+    }
+    // the counter reads -1 while it is turned off
+    return Math.max(THREADS.getCurrentThreadAllocatedBytes(), 0);
+  }
+}
+
+// Adds up the time and memory taken by the measured parts of a benchmark
+class BenchmarkTimer {
+  long nanos;
+  long bytes;
+  long ops;
+
+  long startNanos;
+  long startBytes;
+
+  // EFFECT: starts measuring
+  void start() {
+    this.startBytes = AllocationCounter.allocatedBytes();
+    this.startNanos = System.nanoTime();
+  }
+
+  // EFFECT: stops measuring and adds what was measured to the totals, counted as the
+  // given number of operations
+  void stop(long ops) {
+    long nanos = System.nanoTime() - this.startNanos;
+    this.bytes += AllocationCounter.allocatedBytes() - this.startBytes;
+    this.nanos += nanos;
+    this.ops += ops;
+  }
+
+  // returns the average time and memory of one operation under the given name
+  String report(String name) {
+    long ops = Math.max(this.ops, 1);
+    return String.format("%-12s %12.1f ns/op %12.1f B/op", name, (double) this.nanos / ops,
+        (double) this.bytes / ops);
+  }
+}
+
+// Times starting a game, one move from the click to the end of its waterfall, drawing
+// the board after a move, and checking for a win, through the same world the game is
+// played in, so a slower or more allocating hot path shows up between runs
+class FloodItBenchmark {
+  // the moves played into each board, so the largest boards finish in reasonable time
+  static final int MOVES = 20;
+
+  int sideLength;
+  int numColors;
+
+  // the engine every board is flooded with
+  String engineName;
+
+  // boards built before measuring, so the JIT has compiled the hot paths
+  int warmups;
+  int iterations;
+
+  BenchmarkTimer init = new BenchmarkTimer();
+  BenchmarkTimer click = new BenchmarkTimer();
+  BenchmarkTimer waterfall = new BenchmarkTimer();
+  BenchmarkTimer draw = new BenchmarkTimer();
+  BenchmarkTimer flooded = new BenchmarkTimer();
+
+  // picks the colors to click, the same way for every run
+  Strategy player = new GreedyAbsorbStrategy();
+
+  // keeps the win checks from being optimized away
+  int sink;
+
+  FloodItBenchmark(int sideLength, int numColors, int iterations) {
+    this(sideLength, numColors, iterations, "regions");
+  }
+
+  FloodItBenchmark(int sideLength, int numColors, int iterations, String engineName) {
+    this.sideLength = sideLength;
+    this.numColors = numColors;
+    this.engineName = engineName;
+    this.warmups = iterations;
+    this.iterations = iterations;
+  }
+
+  // returns the averages of every benchmark over the measured boards
+  String run() {
+    for (int seed = 0; seed < this.warmups; seed++) {
+      this.playBoard(new BenchmarkTimer(), new BenchmarkTimer(), new BenchmarkTimer(),
+          new BenchmarkTimer(), new BenchmarkTimer(), seed);
+    }
+    for (int seed = 0; seed < this.iterations; seed++) {
+      this.playBoard(this.init, this.click, this.waterfall, this.draw, this.flooded, seed);
+    }
+    String label = this.sideLength + "x" + this.sideLength + ", " + this.numColors
+        + " colors, " + this.engineName + " engine";
+    return label + "\n" + this.init.report("init") + "\n" + this.click.report("click") + "\n"
+        + this.waterfall.report("waterfall") + "\n" + this.draw.report("drawBoard") + "\n"
+        + this.flooded.report("flooded");
+  }
+
+  // EFFECT: builds the board with the given seed and plays moves into it, adding each
+  // part to its timer
+  void playBoard(BenchmarkTimer init, BenchmarkTimer click, BenchmarkTimer waterfall,
+      BenchmarkTimer draw, BenchmarkTimer flooded, long seed) {
+    FloodItWorld world = new FloodItWorld(this.sideLength, this.numColors, (int) seed,
+        this.engineName);
+    init.start();
+    world.initBoard();
+    world.initNeighbors();
+    init.stop(1);
+    world.drawBoard();
+
+    for (int move = 0; move < MOVES && !world.game.wholeBoardFlooded(); move++) {
+      Posn pos = this.positionOf(world, this.cellOfColor(world.game.board,
+          world.game.hint(this.player)));
+
+      click.start();
+      world.onMouseClicked(pos);
+      click.stop(1);
+
+      waterfall.start();
+      while (world.currentlyWaterfalling) {
+        world.step();
+      }
+      waterfall.stop(1);
+
+      draw.start();
+      world.drawBoard();
+      draw.stop(1);
+
+      flooded.start();
+      for (int i = 0; i < 1000; i++) {
+        if (world.game.wholeBoardFlooded()) {
+          this.sink++;
+        }
+      }
+      flooded.stop(1000);
+    }
+  }
+
+  // returns the first cell of the given board with the given color
+  int cellOfColor(Board board, int color) {
+    int cell = 0;
+    while (board.color(cell) != color) {
+      cell++;
+    }
+    return cell;
+  }
+
+  // EFFECT: brings the given cell into view, zooming in if cells are too small to
+  // click apart
+  // returns the position in the window of the middle of the given cell
+  Posn positionOf(FloodItWorld world, int cell) {
+    world.viewport.show(cell);
+    return world.viewport.positionOf(cell);
+  }
+
+  // runs the benchmarks from the command line, on every board size, number of colors
+  // and engine unless given them: [sideLength numColors [engine]]
+  public static void main(String[] args) {
+    int[] sides = { 14, 100, 500, 2000 };
+    int[] colors = { 3, 6, 8 };
+    String[] engines = { "regions", "bitboard" };
+    if (args.length >= 2) {
+      sides = new int[] { Integer.parseInt(args[0]) };
+      colors = new int[] { Integer.parseInt(args[1]) };
+    }
+    if (args.length >= 3) {
+      engines = new String[] { args[2] };
+    }
+    for (int side : sides) {
+      for (int numColors : colors) {
+        for (String engine : engines) {
+          // about the same number of cells gets measured for every size
+          int iterations = Math.max(2, 2000000 / (side * side));
+          System.out.println(new FloodItBenchmark(side, numColors, Math.min(iterations, 200),
+              engine).run());
+        }
+      }
+    }
+  }
+}
+
+// examples class of FloodIt
+class ExamplesFloodIts {
+  FloodItWorld world1;
+  FloodItWorld world2;
+  FloodItWorld world3;
+  FloodItWorld world4;
+
+  // represent examples of boards
+  PackedBoard board1 = new PackedBoard(3, 7);
+  PackedBoard board2 = new PackedBoard(2, 3);
+
+  // to initiate all example FloodItWorlds used in tests and their fields
+  void initTestExamples() {
+    this.world1 = new FloodItWorld(3, 7, 2);
+    this.world2 = new FloodItWorld(3, 7, 2);
+    this.world3 = new FloodItWorld(2, 3, 4);
+    this.world4 = new FloodItWorld(2, 3, 4);
+
+    this.initWorld(world1, 0, 6, 4, 1, 2, 1, 5, 0, 6);
+    this.initWorld(world2, 0, 6, 4, 1, 2, 1, 5, 0, 6);
+    this.initWorld(world3, 1, 0, 2, 2);
+    this.initWorld(world4, 1, 0, 2, 2);
+
+    this.board1 = new PackedBoard(3, 7);
+    this.board2 = new PackedBoard(2, 3);
+  }
+
+  // test methods for the PackedBoard class
+  // to test the methods sideLength and size
+  void testSize(Tester t) {
+    this.initTestExamples();
+
+    t.checkExpect(board1.sideLength(), 3);
+    t.checkExpect(board1.size(), 9);
+    t.checkExpect(board2.sideLength(), 2);
+    t.checkExpect(board2.size(), 4);
+    t.checkExpect(new PackedBoard(9, 2).flooded.length, 2);
+  }
+
+  // to test the methods index, row and column
+  void testIndex(Tester t) {
+    this.initTestExamples();
+
+    t.checkExpect(board1.index(0, 0), 0);
+    t.checkExpect(board1.index(1, 2), 5);
+    t.checkExpect(board2.index(1, 0), 2);
+    t.checkExpect(board1.row(5), 1);
+    t.checkExpect(board1.column(5), 2);
+    t.checkExpect(board2.row(3), 1);
+    t.checkExpect(board2.column(2), 0);
+  }
+
+  // to test the methods color and setColor
+  void testSetColor(Tester t) {
+    this.initTestExamples();
+
+    t.checkExpect(board1.color(4), 0);
+    board1.setColor(4, 6);
+    t.checkExpect(board1.color(4), 6);
+    board2.setColor(0, 2);
+    t.checkExpect(board2.color(0), 2);
+    t.checkExpect(board2.color(1), 0);
+  }
+
+  // to test the methods flood and isFlooded
+  void testIsFlooded(Tester t) {
+    this.initTestExamples();
+
+    t.checkExpect(world1.game.board.isFlooded(0), true);
+    t.checkExpect(world1.game.board.isFlooded(1), false);
+
+    board1.flood(8);
+    t.checkExpect(board1.isFlooded(8), true);
+    t.checkExpect(board1.isFlooded(7), false);
+
+    PackedBoard bigBoard = new PackedBoard(9, 2);
+    bigBoard.flood(70);
+    t.checkExpect(bigBoard.isFlooded(70), true);
+    t.checkExpect(bigBoard.isFlooded(6), false);
+  }
+
+  // to test the methods floodedCount, remaining and colorsRemaining
+  void testRemaining(Tester t) {
+    this.initTestExamples();
+
+    t.checkExpect(board1.floodedCount(), 0);
+    t.checkExpect(board1.remaining(0), 9);
+    t.checkExpect(board1.colorsRemaining(), 1);
+
+    board1.setColor(2, 4);
+    board1.setColor(3, 4);
+    t.checkExpect(board1.remaining(0), 7);
+    t.checkExpect(board1.remaining(4), 2);
+    t.checkExpect(board1.colorsRemaining(), 2);
+
+    board1.flood(2);
+    board1.flood(2);
+    t.checkExpect(board1.floodedCount(), 1);
+    t.checkExpect(board1.remaining(4), 1);
+
+    // recoloring a flooded cell doesn't change what remains
+    board1.setColor(2, 6);
+    t.checkExpect(board1.remaining(6), 0);
+    board1.flood(3);
+    t.checkExpect(board1.remaining(4), 0);
+    t.checkExpect(board1.colorsRemaining(), 1);
+
+    t.checkExpect(world1.game.board.floodedCount(), 1);
+    t.checkExpect(world1.game.board.remaining(1), 2);
+    t.checkExpect(world1.game.board.colorsRemaining(), 6);
+  }
+
+  // to test the method unflood
+  void testUnflood(Tester t) {
+    this.initTestExamples();
+
+    board1.setColor(2, 4);
+    board1.flood(2);
+    board1.unflood(2);
+    t.checkExpect(board1.isFlooded(2), false);
+    t.checkExpect(board1.floodedCount(), 0);
+    t.checkExpect(board1.remaining(4), 1);
+    t.checkExpect(board1.colorsRemaining(), 2);
+    board1.unflood(2);
+    t.checkExpect(board1.remaining(4), 1);
+  }
+
+  // to test the method bordersFlood
+  void testBordersFlood(Tester t) {
+    this.initTestExamples();
+
+    board1.flood(4);
+    t.checkExpect(board1.bordersFlood(1), true);
+    t.checkExpect(board1.bordersFlood(3), true);
+    t.checkExpect(board1.bordersFlood(0), false);
+    t.checkExpect(board1.bordersFlood(4), false);
+    t.checkExpect(world1.game.board.bordersFlood(1), true);
+    t.checkExpect(world1.game.board.bordersFlood(2), false);
+  }
+
+  // to test the method load
+  void testLoad(Tester t) {
+    this.initTestExamples();
+
+    board2.flood(0);
+    board2.load(new byte[] { 1, 0, 2, 2 });
+    t.checkExpect(board2.isFlooded(0), false);
+    t.checkExpect(board2.floodedCount(), 0);
+    t.checkExpect(board2.color(0), 1);
+    t.checkExpect(board2.color(3), 2);
+    t.checkExpect(board2.remaining(0), 1);
+    t.checkExpect(board2.remaining(2), 2);
+    t.checkExpect(board2.colorsRemaining(), 3);
+  }
+
+  // to test the methods cellColors and recount
+  void testRecount(Tester t) {
+    this.initTestExamples();
+
+    board2.flood(0);
+    byte[] cells = board2.cellColors();
+    t.checkExpect(cells == board2.colors, true);
+    cells[0] = 1;
+    cells[1] = 0;
+    cells[2] = 2;
+    cells[3] = 2;
+    board2.recount();
+    t.checkExpect(board2.isFlooded(0), false);
+    t.checkExpect(board2.color(0), 1);
+    t.checkExpect(board2.remaining(2), 2);
+    t.checkExpect(board2.colorsRemaining(), 3);
+  }
+
+  // to test the methods count and uncount
+  void testCount(Tester t) {
+    this.initTestExamples();
+
+    board2.count(2);
+    t.checkExpect(board2.remaining(2), 1);
+    t.checkExpect(board2.colorsRemaining(), 2);
+    board2.uncount(2);
+    t.checkExpect(board2.remaining(2), 0);
+    t.checkExpect(board2.colorsRemaining(), 1);
+  }
+
+  // to test the method maskColors
+  void testMaskColors(Tester t) {
+    this.initTestExamples();
+
+    long[][] masks = new long[7][3];
+    world1.game.board.maskColors(masks, 1);
+    t.checkExpect(masks[0], new long[] { 1, 0, 2 });
+    t.checkExpect(masks[1], new long[] { 0, 1 + 4, 0 });
+    t.checkExpect(masks[6], new long[] { 2, 0, 4 });
+
+    long[][] wide = new long[2][140];
+    new PackedBoard(70, 2).maskColors(wide, 2);
+    t.checkExpect(wide[0][2], -1L);
+    t.checkExpect(wide[0][3], 63L);
+  }
+
+  // to test the method left
+  void testLeft(Tester t) {
+    this.initTestExamples();
+
+    t.checkExpect(board1.left(0), -1);
+    t.checkExpect(board1.left(3), -1);
+    t.checkExpect(board1.left(5), 4);
+    t.checkExpect(board2.left(3), 2);
+  }
+
+  // to test the method right
+  void testRight(Tester t) {
+    this.initTestExamples();
+
+    t.checkExpect(board1.right(0), 1);
+    t.checkExpect(board1.right(5), -1);
+    t.checkExpect(board2.right(2), 3);
+    t.checkExpect(board2.right(3), -1);
+  }
+
+  // to test the method top
+  void testTop(Tester t) {
+    this.initTestExamples();
+
+    t.checkExpect(board1.top(2), -1);
+    t.checkExpect(board1.top(5), 2);
+    t.checkExpect(board2.top(1), -1);
+    t.checkExpect(board2.top(3), 1);
+  }
+
+  // to test the method bottom
+  void testBottom(Tester t) {
+    this.initTestExamples();
+
+    t.checkExpect(board1.bottom(5), 8);
+    t.checkExpect(board1.bottom(6), -1);
+    t.checkExpect(board2.bottom(1), 3);
+    t.checkExpect(board2.bottom(2), -1);
+  }
+
+  // test methods for the ColorScan class
+  // returns 70 color indices that are all 0 but for a few
+  byte[] scanColors() {
+    byte[] colors = new byte[70];
+    colors[0] = 1;
+    colors[10] = 3;
+    colors[63] = 2;
+    colors[65] = 3;
+    return colors;
+  }
+
+  // to test the methods planeCount, planes and select
+  void testPlanes(Tester t) {
+    t.checkExpect(ColorScan.planeCount(1), 1);
+    t.checkExpect(ColorScan.planeCount(4), 2);
+    t.checkExpect(ColorScan.planeCount(5), 3);
+    t.checkExpect(ColorScan.planeCount(16), 4);
+
+    long[] planes = new long[2];
+    ColorScan.planes(this.scanColors(), 0, planes);
+    t.checkExpect(planes, new long[] { 1 | (1L << 10), (1L << 10) | (1L << 63) });
+    t.checkExpect(ColorScan.select(planes, 3), 1L << 10);
+    t.checkExpect(ColorScan.select(planes, 2), 1L << 63);
+    t.checkExpect(ColorScan.select(planes, 0), ~(1 | (1L << 10) | (1L << 63)));
+  }
+
+  // to test the method count
+  void testScanCount(Tester t) {
+    int[] counts = new int[4];
+    ColorScan.count(this.scanColors(), counts);
+    t.checkExpect(counts, new int[] { 66, 1, 1, 2 });
+
+    // past COUNT_COLORS every cell is looked at on its own
+    int[] many = new int[6];
+    ColorScan.count(this.scanColors(), many);
+    t.checkExpect(many, new int[] { 66, 1, 1, 2, 0, 0 });
+  }
+
+  // to test the method mask
+  void testScanMask(Tester t) {
+    long[][] masks = new long[4][3];
+    ColorScan.mask(this.scanColors(), 0, 70, masks, 1);
+    t.checkExpect(masks[0], new long[] { 0, ~(1 | (1L << 10) | (1L << 63)), 1 + 4 + 8 + 16 + 32 });
+    t.checkExpect(masks[2], new long[] { 0, 1L << 63, 0 });
+    t.checkExpect(masks[3], new long[] { 0, 1L << 10, 2 });
+
+    // past MASK_COLORS every cell is looked at on its own
+    long[][] many = new long[9][3];
+    ColorScan.mask(this.scanColors(), 0, 70, many, 1);
+    t.checkExpect(Arrays.copyOf(many, 4), masks);
+
+    long[][] part = new long[4][1];
+    ColorScan.mask(this.scanColors(), 8, 4, part, 0);
+    t.checkExpect(part[3], new long[] { 4 });
+    t.checkExpect(part[0], new long[] { 1 + 2 + 8 });
+  }
+
+  // test methods for the IntList class
+  // to test the methods add and get
+  void testAdd(Tester t) {
+    IntList list = new IntList();
+    t.checkExpect(list.size, 0);
+    for (int i = 0; i < 40; i++) {
+      list.add(i * 2);
+    }
+    t.checkExpect(list.size, 40);
+    t.checkExpect(list.get(0), 0);
+    t.checkExpect(list.get(39), 78);
+  }
+
+  // to test the method clear
+  void testClear(Tester t) {
+    IntList list = new IntList();
+    list.add(3);
+    list.add(4);
+    list.clear();
+    t.checkExpect(list.size, 0);
+    list.add(5);
+    t.checkExpect(list.get(0), 5);
+  }
+
+  // returns a 3x3 board of color 0 around a column of color 1 that starts in the
+  // top row, with the first cell flooded
+  PackedBoard columnBoard() {
+    PackedBoard board = new PackedBoard(3, 2);
+    board.setColor(1, 1);
+    board.setColor(4, 1);
+    board.flood(0);
+    return board;
+  }
+
+  // returns the column board before its first cell is flooded, the way a board is
+  // labeled before any game is played on it
+  PackedBoard unfloodedColumnBoard() {
+    PackedBoard board = this.columnBoard();
+    board.unflood(0);
+    return board;
+  }
+
+  // returns the column board with its bottom right corner in the second color,
+  // which cuts the cells on the right off from the ones on the left
+  PackedBoard cornerBoard() {
+    PackedBoard board = this.unfloodedColumnBoard();
+    board.setColor(8, 1);
+    board.flood(0);
+    return board;
+  }
+
+  // EFFECT: sets up the given world on a board with the given colors in row-major
+  // order, so the examples don't depend on how random boards are generated
+  void initWorld(FloodItWorld world, int... colors) {
+    PackedBoard board = new PackedBoard(world.game.sideLength, world.game.numColors);
+    for (int i = 0; i < colors.length; i++) {
+      board.setColor(i, colors[i]);
+    }
+    board.flood(0);
+    world.initColors();
+    world.game.board = board;
+    world.game.floodColor = colors[0];
+    world.renderer = new BoardRenderer(board, world.palette);
+    world.initNeighbors();
+  }
+
+  // sets the colors of the given 3x3 world to those of the column board, then
+  // floods the starting region
+  void initColumnWorld(FloodItWorld world) {
+    world.initBoard();
+    world.game.board = this.columnBoard();
+    world.game.floodColor = 0;
+    world.initNeighbors();
+  }
+
+  // test methods for the RegionGraph class
+  // to test the constructor and the method label
+  void testLabel(Tester t) {
+    this.initTestExamples();
+
+    RegionGraph column = new RegionGraph(this.unfloodedColumnBoard());
+    t.checkExpect(column.count, 2);
+    t.checkExpect(column.regionOf, new int[] { 0, 1, 0, 0, 1, 0, 0, 0, 0 });
+    t.checkExpect(column.regionColor, new int[] { 0, 1 });
+
+    // the flooded first cell is a region of its own until its color joins it
+    RegionGraph flooded = new RegionGraph(this.columnBoard());
+    t.checkExpect(flooded.count, 3);
+    t.checkExpect(flooded.regionOf, new int[] { 0, 1, 2, 2, 1, 2, 2, 2, 2 });
+
+    RegionGraph separate = new RegionGraph(world1.game.board);
+    t.checkExpect(separate.count, 9);
+    t.checkExpect(separate.regionOf, new int[] { 0, 1, 2, 3, 4, 5, 6, 7, 8 });
+    t.checkExpect(Arrays.copyOf(separate.regionColor, 9), new int[] { 0, 6, 4, 1, 2, 1, 5,
+        0, 6 });
+
+    RegionGraph single = new RegionGraph(board1);
+    t.checkExpect(single.count, 1);
+    t.checkExpect(single.regionSize, new int[] { 9 });
+  }
+
+  // to test the method sameRegion
+  void testSameRegion(Tester t) {
+    this.initTestExamples();
+
+    PackedBoard board = this.columnBoard();
+    RegionGraph graph = new RegionGraph(board);
+    t.checkExpect(graph.sameRegion(board, 3, 6), true);
+    t.checkExpect(graph.sameRegion(board, 3, 4), false);
+    board.flood(1);
+    t.checkExpect(graph.sameRegion(board, 0, 1), true);
+
+    // a flooded cell left with the color of an unflooded neighbor stays apart from it
+    t.checkExpect(graph.sameRegion(board, 0, 3), false);
+
+    // flooded cells stay one region while the waterfall recolors them
+    world1.game.play(1);
+    t.checkExpect(new RegionGraph(world1.game.board).regionOf[3], 0);
+  }
+
+  // to test the methods find and union
+  void testUnion(Tester t) {
+    RegionGraph graph = new RegionGraph(board2);
+    int[] parent = new int[] { 0, 1, 2, 3 };
+    graph.union(parent, 3, 2);
+    t.checkExpect(parent, new int[] { 0, 1, 2, 2 });
+    graph.union(parent, 1, 3);
+    t.checkExpect(parent, new int[] { 0, 1, 1, 2 });
+    t.checkExpect(graph.find(parent, 3), 1);
+    t.checkExpect(parent, new int[] { 0, 1, 1, 1 });
+    graph.union(parent, 2, 1);
+    t.checkExpect(parent, new int[] { 0, 1, 1, 1 });
+  }
+
+  // to test the methods findShared and unionShared
+  void testUnionShared(Tester t) {
+    RegionGraph graph = new RegionGraph(board2);
+    int[] parent = new int[] { 0, 1, 2, 3 };
+    graph.unionShared(parent, 3, 2);
+    t.checkExpect(parent, new int[] { 0, 1, 2, 2 });
+    graph.unionShared(parent, 1, 3);
+    t.checkExpect(parent, new int[] { 0, 1, 1, 2 });
+    t.checkExpect(graph.findShared(parent, 3), 1);
+    t.checkExpect(parent, new int[] { 0, 1, 1, 1 });
+    graph.unionShared(parent, 2, 1);
+    t.checkExpect(parent, new int[] { 0, 1, 1, 1 });
+  }
+
+  // returns a board of three stripes that is all color 0 but for its second column
+  PackedBoard stripedBoard() {
+    PackedBoard board = new PackedBoard(130, 2);
+    for (int row = 0; row < 130; row++) {
+      board.setColor(board.index(row, 1), 1);
+    }
+    return board;
+  }
+
+  // to test the methods stripes, stripeStart, joinStripe, joinSeam and countRoots
+  void testJoinStripe(Tester t) {
+    PackedBoard board = this.stripedBoard();
+    RegionGraph graph = new RegionGraph(board);
+    t.checkExpect(graph.stripes(3, false).count(), 3L);
+    t.checkExpect(graph.stripes(3, true).isParallel(), true);
+    t.checkExpect(graph.stripeStart(board, 1), 8320);
+    t.checkExpect(graph.stripeStart(board, 3), 16900);
+
+    int[] parent = new int[board.size()];
+    graph.joinStripe(board, parent, 1);
+    t.checkExpect(graph.find(parent, 16639), 8322);
+    t.checkExpect(graph.countRoots(board, parent, 1), 3);
+    graph.joinStripe(board, parent, 0);
+    graph.joinStripe(board, parent, 2);
+    graph.joinSeam(board, parent, 1);
+    t.checkExpect(graph.findShared(parent, 16639), 2);
+    t.checkExpect(graph.countRoots(board, parent, 1), 0);
+    t.checkExpect(graph.countRoots(board, parent, 2), 3);
+    graph.joinSeam(board, parent, 2);
+    t.checkExpect(graph.countRoots(board, parent, 2), 0);
+  }
+
+  // to test the methods numberStripe and numberAcrossSeams, and labeling the same
+  // regions with or without more threads
+  void testNumberStripe(Tester t) {
+    PackedBoard board = this.stripedBoard();
+    RegionGraph graph = new RegionGraph(board);
+    int[] parent = new int[board.size()];
+    graph.joinStripe(board, parent, 0);
+    graph.joinStripe(board, parent, 1);
+    graph.joinSeam(board, parent, 1);
+    graph.regionOf = new int[board.size()];
+    graph.regionColor = new int[3];
+
+    graph.numberStripe(board, parent, 1, 3);
+    t.checkExpect(graph.regionOf[8320], -1);
+    t.checkExpect(graph.regionOf[8322], -3);
+    graph.numberStripe(board, parent, 0, 0);
+    t.checkExpect(graph.regionOf[2], 2);
+    t.checkExpect(graph.regionOf[131], 1);
+    t.checkExpect(graph.regionColor, new int[] { 0, 1, 0 });
+    graph.numberAcrossSeams(board, 1);
+    t.checkExpect(graph.regionOf[8320], 0);
+    t.checkExpect(graph.regionOf[8322], 2);
+
+    RegionGraph serial = new RegionGraph(board);
+    t.checkExpect(serial.count, 3);
+    t.checkExpect(serial.regionOf[board.index(129, 1)], 1);
+    RegionGraph shared = new RegionGraph(board);
+    shared.label(board, true);
+    t.checkExpect(shared.regionOf, serial.regionOf);
+  }
+
+  // to test the method collectCells
+  void testCollectCells(Tester t) {
+    RegionGraph column = new RegionGraph(this.unfloodedColumnBoard());
+    t.checkExpect(column.regionSize, new int[] { 7, 2 });
+    t.checkExpect(column.cellStart, new int[] { 0, 7, 9 });
+    t.checkExpect(column.cells, new int[] { 0, 2, 3, 5, 6, 7, 8, 1, 4 });
+  }
+
+  // to test the methods connect, countEdge, addEdge and addCount, and connecting in
+  // parallel
+  void testConnect(Tester t) {
+    this.initTestExamples();
+
+    // the neighbors are kept in an array long enough for every touching pair of cells
+    RegionGraph column = new RegionGraph(this.unfloodedColumnBoard());
+    t.checkExpect(column.neighborStart, new int[] { 0, 1, 2 });
+    t.checkExpect(Arrays.copyOf(column.neighbors, 2), new int[] { 1, 0 });
+
+    RegionGraph separate = new RegionGraph(world1.game.board);
+    t.checkExpect(Arrays.copyOf(separate.neighborStart, 10), new int[] { 0, 2, 5, 7, 10, 14,
+        17, 19, 22, 24 });
+    t.checkExpect(Arrays.copyOfRange(separate.neighbors, 10, 14), new int[] { 1, 3, 5, 7 });
+
+    column.neighborStart = new int[] { 2, 2, 0 };
+    column.countEdge(0, 2, false);
+    column.countEdge(0, -1, false);
+    t.checkExpect(column.neighborStart, new int[] { 2, 2, 0 });
+    column.countEdge(0, 1, false);
+    t.checkExpect(column.neighborStart, new int[] { 3, 3, 0 });
+    column.countEdge(0, 1, true);
+    t.checkExpect(column.neighborStart, new int[] { 4, 4, 0 });
+    column.neighborStart = new int[] { 2, 4, 4 };
+    column.edges = new int[4];
+    column.addEdge(0, 1, false);
+    column.addEdge(0, -1, false);
+    t.checkExpect(column.neighborStart, new int[] { 1, 3, 4 });
+    column.addEdge(0, 1, true);
+    t.checkExpect(column.neighborStart, new int[] { 0, 2, 4 });
+    t.checkExpect(column.edges, new int[] { 1, 1, 0, 0 });
+    t.checkExpect(column.addCount(1, 3, true), 2);
+    t.checkExpect(column.addCount(1, -1, false), 5);
+    t.checkExpect(column.neighborStart[1], 4);
+
+    // the stripes of a large board are connected at once, the same as one at a time
+    PackedBoard large = new PackedBoard(600, 3);
+    new BoardGenerator(5, 3).fill(large, 0);
+    large.flood(0);
+    RegionGraph serial = new RegionGraph(large);
+    serial.connect(large, false);
+    RegionGraph parallel = new RegionGraph(large);
+    parallel.connect(large, true);
+    t.checkExpect(parallel.count, serial.count);
+    t.checkExpect(Arrays.copyOf(parallel.neighborStart, parallel.count + 1),
+        Arrays.copyOf(serial.neighborStart, serial.count + 1));
+    t.checkExpect(Arrays.copyOf(parallel.neighbors, parallel.neighborStart[parallel.count]),
+        Arrays.copyOf(serial.neighbors, serial.neighborStart[serial.count]));
+  }
+
+  // to test the methods parallel and stripeCount
+  void testStripeCount(Tester t) {
+    PackedBoard large = new PackedBoard(600, 3);
+    t.checkExpect(RegionGraph.parallel(this.columnBoard()), false);
+    t.checkExpect(RegionGraph.parallel(large), ForkJoinPool.getCommonPoolParallelism() > 1);
+
+    RegionGraph column = new RegionGraph(this.columnBoard());
+    t.checkExpect(column.stripeCount(this.columnBoard()), 1);
+    t.checkExpect(column.stripeCount(large), 10);
+    t.checkExpect(column.stripeCount(new PackedBoard(64, 3)), 1);
+    t.checkExpect(column.stripeCount(new PackedBoard(65, 3)), 2);
+  }
+
+  // to test the methods countEdges, endEdges, fillEdges, dropRepeats, distinct,
+  // copyNeighbors and sum
+  void testConnectStripes(Tester t) {
+    this.initTestExamples();
+
+    // the regions of the column board are all in its one stripe, region 0 touching
+    // region 1 at five pairs of cells
+    RegionGraph column = new RegionGraph(this.unfloodedColumnBoard());
+    PackedBoard board = this.unfloodedColumnBoard();
+    t.checkExpect(Arrays.copyOf(column.firstRegion, 2), new int[] { 0, 2 });
+    column.neighborStart = new int[3];
+    column.countEdges(board, 0, true);
+    t.checkExpect(column.neighborStart, new int[] { 5, 5, 0 });
+    t.checkExpect(column.sum(column.neighborStart, 0, 2), 10);
+    column.endEdges(0, 0);
+    t.checkExpect(column.neighborStart, new int[] { 5, 10, 0 });
+    column.neighborStart[2] = 10;
+    column.edges = new int[10];
+    column.fillEdges(board, 0, true);
+    t.checkExpect(column.neighborStart, new int[] { 0, 5, 10 });
+    t.checkExpect(column.edges, new int[] { 1, 1, 1, 1, 1, 0, 0, 0, 0, 0 });
+    column.dropRepeats(0);
+    t.checkExpect(Arrays.copyOf(column.edgeEnd, 2), new int[] { 1, 6 });
+    t.checkExpect(column.distinct(0), 2);
+    column.neighbors = new int[3];
+    column.copyNeighbors(0, 1);
+    t.checkExpect(column.neighbors, new int[] { 0, 1, 0 });
+    t.checkExpect(Arrays.copyOf(column.neighborStart, 2), new int[] { 1, 2 });
+  }
+
+  // to test the methods relabel and atLeast
+  void testRelabel(Tester t) {
+    this.initTestExamples();
+
+    RegionGraph graph = new RegionGraph(world1.game.board);
+    int[] regionOf = graph.regionOf;
+    int[] regionColor = graph.regionColor;
+    int[] neighbors = graph.neighbors;
+
+    // a board of the same size with fewer regions is labeled in the same arrays
+    graph.relabel(this.unfloodedColumnBoard());
+    RegionGraph fresh = new RegionGraph(this.unfloodedColumnBoard());
+    t.checkExpect(graph.regionOf == regionOf, true);
+    t.checkExpect(graph.regionColor == regionColor, true);
+    t.checkExpect(graph.neighbors == neighbors, true);
+    t.checkExpect(graph.count, 2);
+    t.checkExpect(graph.regionOf, fresh.regionOf);
+    t.checkExpect(Arrays.copyOf(graph.regionColor, 2), fresh.regionColor);
+    t.checkExpect(Arrays.copyOf(graph.regionSize, 2), fresh.regionSize);
+    t.checkExpect(Arrays.copyOf(graph.cellStart, 3), fresh.cellStart);
+    t.checkExpect(graph.cells, fresh.cells);
+    t.checkExpect(Arrays.copyOf(graph.neighborStart, 3), fresh.neighborStart);
+    t.checkExpect(Arrays.copyOf(graph.neighbors, 2), new int[] { 1, 0 });
+
+    // and one with more regions than there is room for gets bigger arrays
+    graph.relabel(world1.game.board);
+    t.checkExpect(graph.count, 9);
+    t.checkExpect(graph.regionOf == regionOf, true);
+    t.checkExpect(Arrays.copyOf(graph.neighborStart, 10), new int[] { 0, 2, 5, 7, 10, 14, 17,
+        19, 22, 24 });
+    graph.relabel(board2);
+    t.checkExpect(graph.regionOf.length, 4);
+
+    int[] array = new int[3];
+    t.checkExpect(RegionGraph.atLeast(array, 3) == array, true);
+    t.checkExpect(RegionGraph.atLeast(array, 4).length, 4);
+    t.checkExpect(RegionGraph.atLeast(null, 2), new int[2]);
+    t.checkExpect(RegionGraph.atLeast(array, 16).length, 18);
+  }
+
+  // test methods for the RegionState class
+  // to test the constructor and the methods floodRegion and isFlooded
+  void testFloodRegion(Tester t) {
+    this.initTestExamples();
+
+    RegionState state = new RegionState(new RegionGraph(world1.game.board), 0);
+    t.checkExpect(state.isFlooded(0), true);
+    t.checkExpect(state.isFlooded(1), false);
+    t.checkExpect(state.boundary, new long[] { 2 + 8 });
+    t.checkExpect(state.floodedCells, 1);
+
+    state.floodRegion(4);
+    t.checkExpect(state.isFlooded(4), true);
+    t.checkExpect(state.boundary, new long[] { 2 + 8 + 32 + 128 });
+    t.checkExpect(state.floodedCells, 2);
+  }
+
+  // to test the method absorb
+  void testAbsorb(Tester t) {
+    this.initTestExamples();
+
+    RegionState state = new RegionState(new RegionGraph(world1.game.board), 0);
+    IntList absorbed = new IntList();
+    t.checkExpect(state.absorb(2, absorbed), 0);
+    t.checkExpect(state.absorb(1, absorbed), 1);
+    t.checkExpect(absorbed.get(0), 3);
+    t.checkExpect(state.isFlooded(3), true);
+    t.checkExpect(state.boundary, new long[] { 2 + 16 + 64 });
+
+    t.checkExpect(state.absorb(2, absorbed), 1);
+    t.checkExpect(state.absorb(6, absorbed), 1);
+    t.checkExpect(state.absorb(1, absorbed), 1);
+    t.checkExpect(absorbed.size, 4);
+    t.checkExpect(state.floodedCells, 5);
+  }
+
+  // to test the methods gains and boundaryCells
+  void testGains(Tester t) {
+    this.initTestExamples();
+
+    RegionState state = new RegionState(new RegionGraph(world1.game.board), 0);
+    t.checkExpect(state.gains(7), new int[] { 0, 1, 0, 0, 0, 0, 1 });
+    t.checkExpect(state.boundaryCells(), 2);
+    state.absorb(1, new IntList());
+    t.checkExpect(state.gains(7), new int[] { 0, 0, 1, 0, 0, 1, 1 });
+    t.checkExpect(state.boundaryCells(), 3);
+  }
+
+  // to test the methods copy and allFlooded
+  void testCopy(Tester t) {
+    RegionState state = new RegionState(new RegionGraph(this.unfloodedColumnBoard()), 0);
+    RegionState copy = state.copy();
+    t.checkExpect(copy, state);
+    t.checkExpect(copy.allFlooded(), false);
+
+    copy.absorb(1, new IntList());
+    t.checkExpect(copy.allFlooded(), true);
+    t.checkExpect(state.allFlooded(), false);
+    t.checkExpect(state.isFlooded(1), false);
+  }
+
+  // test methods for the ChunkedBits class
+  // to test the constructors and the methods get, nextSetBit and edit
+  void testChunkedBits(Tester t) {
+    ChunkedBits bits = new ChunkedBits(1000);
+    t.checkExpect(bits.chunks.length, 2);
+    t.checkExpect(bits.chunks[1] == ChunkedBits.EMPTY, true);
+    t.checkExpect(bits.nextSetBit(0), -1);
+
+    BitsEditor editor = bits.edit();
+    editor.set(3);
+    editor.set(700);
+    editor.set(3);
+    editor.clear(5);
+    ChunkedBits next = editor.done();
+    t.checkExpect(next.count, 2);
+    t.checkExpect(next.get(3), true);
+    t.checkExpect(next.get(4), false);
+    t.checkExpect(next.nextSetBit(0), 3);
+    t.checkExpect(next.nextSetBit(4), 700);
+    t.checkExpect(next.nextSetBit(701), -1);
+    t.checkExpect(bits.get(3), false);
+    t.checkExpect(bits.count, 0);
+  }
+
+  // to test the method of
+  void testChunkedBitsOf(Tester t) {
+    long[] words = new long[16];
+    words[9] = 6;
+    ChunkedBits bits = ChunkedBits.of(words, 1000);
+    t.checkExpect(bits.chunks[0] == ChunkedBits.EMPTY, true);
+    t.checkExpect(bits.count, 2);
+    t.checkExpect(bits.nextSetBit(0), 577);
+    t.checkExpect(bits.nextSetBit(578), 578);
+    t.checkExpect(bits.nextSetBit(579), -1);
+  }
+
+  // test methods for the BitsEditor class
+  // to test the methods writable and done
+  void testBitsEditor(Tester t) {
+    BitsEditor first = new ChunkedBits(1000).edit();
+    first.set(3);
+    first.set(700);
+    ChunkedBits bits = first.done();
+    t.checkExpect(first.chunks, null);
+
+    BitsEditor editor = bits.edit();
+    long[] chunk = editor.writable(700);
+    t.checkExpect(chunk == bits.chunks[1], false);
+    t.checkExpect(editor.writable(701) == chunk, true);
+    editor.clear(700);
+    editor.clear(700);
+    ChunkedBits next = editor.done();
+    t.checkExpect(next.count, 1);
+    t.checkExpect(next.chunks[0] == bits.chunks[0], true);
+    t.checkExpect(bits.get(700), true);
+  }
+
+  // test methods for the GameState class
+  // to test the methods of, isFlooded, gain and boundaryCells
+  void testGameState(Tester t) {
+    this.initTestExamples();
+
+    GameState state = world1.game.gameState();
+    t.checkExpect(state.gains, new int[] { 0, 1, 0, 0, 0, 0, 1 });
+    t.checkExpect(state.gain(6), 1);
+    t.checkExpect(state.boundaryCells(), 2);
+    t.checkExpect(state.isFlooded(0), true);
+    t.checkExpect(state.isFlooded(1), false);
+    t.checkExpect(state.boundary[1].get(3), true);
+    t.checkExpect(state.moves, 0);
+    t.checkExpect(state.floodColor, 0);
+    t.checkExpect(world3.game.gameState(),
+        GameState.of(world3.game.searchState(), world3.game.floodColor, 3));
+  }
+
+  // to test the methods play and allFlooded
+  void testPlayState(Tester t) {
+    this.initTestExamples();
+
+    GameState state = world1.game.gameState();
+    GameState next = state.play(1);
+    t.checkExpect(next.isFlooded(3), true);
+    t.checkExpect(state.isFlooded(3), false);
+    t.checkExpect(next.gains, new int[] { 0, 0, 1, 0, 0, 1, 1 });
+    t.checkExpect(next.boundaryCells(), 3);
+    t.checkExpect(next.floodedCells, 2);
+    t.checkExpect(next.moves, 1);
+    t.checkExpect(next.floodColor, 1);
+
+    // only the sets of the colors the move touched are copied
+    t.checkExpect(next.graph == state.graph, true);
+    t.checkExpect(next.boundary[6] == state.boundary[6], true);
+    t.checkExpect(next.boundary[2] == state.boundary[2], false);
+    t.checkExpect(next.play(2).isFlooded(4), true);
+
+    GameState column = GameState.of(new RegionState(new RegionGraph(
+        this.unfloodedColumnBoard()), 0), 0, 2);
+    t.checkExpect(column.allFlooded(), false);
+    t.checkExpect(column.play(1).allFlooded(), true);
+  }
+
+  // test methods for the RegionFloodEngine class
+  // to test the constructor and the methods flood and floodCells
+  void testRegionFlood(Tester t) {
+    PackedBoard board = this.columnBoard();
+    RegionFloodEngine engine = new RegionFloodEngine(board, 0);
+    t.checkExpect(board.isFlooded(2), true);
+    t.checkExpect(board.isFlooded(8), true);
+    t.checkExpect(board.isFlooded(1), false);
+
+    t.checkExpect(engine.flood(0), 0);
+    t.checkExpect(engine.flood(1), 2);
+    t.checkExpect(board.isFlooded(1), true);
+    t.checkExpect(board.isFlooded(4), true);
+  }
+
+  // to test the methods snapshot and restore
+  void testRestore(Tester t) {
+    PackedBoard board = this.columnBoard();
+    RegionFloodEngine engine = new RegionFloodEngine(board, 0);
+    FloodEngine start = engine.snapshot();
+    engine.flood(1);
+    board.setColor(1, 0);
+    board.setColor(4, 0);
+    t.checkExpect(engine.allFlooded(), true);
+
+    // the cells flooded since get their own color back
+    engine.restore(start);
+    t.checkExpect(board.isFlooded(1), false);
+    t.checkExpect(board.isFlooded(4), false);
+    t.checkExpect(board.isFlooded(2), true);
+    t.checkExpect(board.color(1), 1);
+    t.checkExpect(board.remaining(1), 2);
+    t.checkExpect(engine.allFlooded(), false);
+
+    // a snapshot can be restored more than once
+    engine.flood(1);
+    engine.restore(start);
+    t.checkExpect(board.isFlooded(4), false);
+    t.checkExpect(engine.regionState().floodedCells, 7);
+  }
+
+  // to test the methods reset and floodStart, and the reset method of RegionState
+  void testRegionReset(Tester t) {
+    RegionFloodEngine engine = new RegionFloodEngine(this.columnBoard(), 0);
+    engine.flood(1);
+    RegionGraph graph = engine.graph;
+    long[] flooded = engine.state.flooded;
+
+    // the next board is labeled and flooded in the arrays of the last one
+    PackedBoard next = this.cornerBoard();
+    engine.reset(next, 0);
+    t.checkExpect(engine.graph == graph, true);
+    t.checkExpect(engine.state.flooded == flooded, true);
+    t.checkExpect(engine.board, next);
+    t.checkExpect(graph.count, 5);
+    t.checkExpect(engine.state.floodedCells, 4);
+    t.checkExpect(next.isFlooded(6), true);
+    t.checkExpect(next.isFlooded(2), false);
+    t.checkExpect(engine.state.flooded,
+        new RegionFloodEngine(this.cornerBoard(), 0).state.flooded);
+
+    t.checkExpect(engine.flood(1), 3);
+    t.checkExpect(engine.flood(0), 2);
+    t.checkExpect(engine.allFlooded(), true);
+
+    // a state of more regions than its bits hold gets more bits
+    RegionState state = new RegionState(new RegionGraph(this.unfloodedColumnBoard()), 0);
+    state.graph.count = 100;
+    state.reset(1);
+    t.checkExpect(state.flooded.length, 2);
+    t.checkExpect(state.isFlooded(1), true);
+    t.checkExpect(state.isFlooded(0), false);
+  }
+
+  // to test the method allFlooded
+  void testRegionAllFlooded(Tester t) {
+    this.initTestExamples();
+
+    RegionFloodEngine engine = new RegionFloodEngine(this.columnBoard(), 0);
+    t.checkExpect(engine.allFlooded(), false);
+    engine.flood(1);
+    t.checkExpect(engine.allFlooded(), true);
+
+    t.checkExpect(new RegionFloodEngine(board1, 0).allFlooded(), true);
+  }
+
+  // to test the method frontier
+  void testRegionFrontier(Tester t) {
+    this.initTestExamples();
+
+    RegionFloodEngine engine = new RegionFloodEngine(this.columnBoard(), 0);
+    t.checkExpect(engine.frontier(), 2);
+    engine.flood(1);
+    t.checkExpect(engine.frontier(), 0);
+    t.checkExpect(new RegionFloodEngine(world1.game.board, 0).frontier(), 2);
+  }
+
+  // test methods for the BitboardFloodEngine class
+  // to test the constructor and the methods flood, floodBits and allFlooded
+  void testBitboardFlood(Tester t) {
+    PackedBoard board = this.columnBoard();
+    BitboardFloodEngine engine = new BitboardFloodEngine(board, 0, 2);
+    t.checkExpect(board.isFlooded(2), true);
+    t.checkExpect(board.isFlooded(8), true);
+    t.checkExpect(board.isFlooded(1), false);
+    t.checkExpect(engine.flooded, new long[] { 5, 5, 7 });
+    t.checkExpect(engine.floodedCells, 7);
+    t.checkExpect(engine.allFlooded(), false);
+
+    t.checkExpect(engine.flood(0), 0);
+    t.checkExpect(engine.flood(1), 2);
+    t.checkExpect(board.isFlooded(4), true);
+    t.checkExpect(engine.flooded, new long[] { 7, 7, 7 });
+    t.checkExpect(engine.allFlooded(), true);
+  }
+
+  // to test the methods bit, cell and growRow on rows of more than one word
+  void testGrowRow(Tester t) {
+    PackedBoard board = new PackedBoard(70, 2);
+    for (int i = 70; i < board.size(); i++) {
+      board.setColor(i, 1);
+    }
+    BitboardFloodEngine engine = new BitboardFloodEngine(board, 0, 2);
+    t.checkExpect(engine.stride, 2);
+    t.checkExpect(engine.bit(69), 69);
+    t.checkExpect(engine.bit(70), 128);
+    t.checkExpect(engine.cell(2, 6), 76);
+    t.checkExpect(engine.cell(3, 5), 139);
+    t.checkExpect(engine.flooded[0], -1L);
+    t.checkExpect(engine.flooded[1], 63L);
+    t.checkExpect(engine.floodedCells, 70);
+
+    t.checkExpect(engine.growRow(1, engine.colorMasks[1]), true);
+    t.checkExpect(engine.flooded[2], -1L);
+    t.checkExpect(engine.flooded[3], 63L);
+    t.checkExpect(engine.floodedCells, 140);
+    t.checkExpect(engine.growRow(1, engine.colorMasks[1]), false);
+
+    BitboardFloodEngine fresh = new BitboardFloodEngine(board, 0, 2);
+    t.checkExpect(fresh.flood(1), 4830);
+    t.checkExpect(fresh.allFlooded(), true);
+  }
+
+  // to test the methods snapshot, restore and regionState
+  void testBitboardRestore(Tester t) {
+    PackedBoard board = this.columnBoard();
+    BitboardFloodEngine engine = new BitboardFloodEngine(board, 0, 2);
+    FloodEngine start = engine.snapshot();
+    engine.flood(1);
+    board.setColor(1, 0);
+    board.setColor(4, 0);
+    t.checkExpect(engine.allFlooded(), true);
+
+    engine.restore(start);
+    t.checkExpect(board.isFlooded(1), false);
+    t.checkExpect(board.isFlooded(4), false);
+    t.checkExpect(board.isFlooded(2), true);
+    t.checkExpect(board.color(1), 1);
+    t.checkExpect(board.remaining(1), 2);
+    t.checkExpect(engine.flooded, new long[] { 5, 5, 7 });
+    t.checkExpect(engine.allFlooded(), false);
+
+    engine.flood(1);
+    engine.restore(start);
+    t.checkExpect(engine.floodedCells, 7);
+    t.checkExpect(engine.regionState().floodedCells, 7);
+  }
+
+  // to test the methods reset and floodStart
+  void testBitboardReset(Tester t) {
+    BitboardFloodEngine engine = new BitboardFloodEngine(this.columnBoard(), 0, 2);
+    engine.regionState();
+    engine.flood(1);
+    long[] flooded = engine.flooded;
+    long[][] masks = engine.colorMasks;
+    RegionGraph graph = engine.labeled.graph;
+
+    // a board of the same size is masked, flooded and labeled in the same arrays
+    engine.reset(this.cornerBoard(), 0);
+    t.checkExpect(engine.flooded == flooded, true);
+    t.checkExpect(engine.colorMasks == masks, true);
+    t.checkExpect(engine.labeled.graph == graph, true);
+    t.checkExpect(engine.flooded, new long[] { 1, 1, 3 });
+    t.checkExpect(engine.colorMasks[1], new long[] { 2, 2, 4 });
+    t.checkExpect(engine.floodedCells, 4);
+    t.checkExpect(engine.labeled.floodedCells, 4);
+    t.checkExpect(engine.regionState().gains(2), new int[] { 0, 3 });
+
+    // the labeled regions are flooded from the start the engine is reset to
+    engine.reset(this.unfloodedColumnBoard(), 4);
+    t.checkExpect(engine.start, 4);
+    t.checkExpect(engine.floodedCells, 2);
+    t.checkExpect(engine.labeled.floodedCells, 2);
+    t.checkExpect(engine.regionState().flooded,
+        new RegionFloodEngine(this.unfloodedColumnBoard(), 4).state.flooded);
+
+    // a board of another size gets new masks
+    PackedBoard big = new PackedBoard(70, 2);
+    big.flood(0);
+    engine.reset(big, 0);
+    t.checkExpect(engine.stride, 2);
+    t.checkExpect(engine.flooded.length, 140);
+    t.checkExpect(engine.allFlooded(), true);
+  }
+
+  // to test the methods regionState and catchUp
+  void testBitboardRegionState(Tester t) {
+    FloodItWorld world = new FloodItWorld(3, 7, 2, "bitboard");
+    this.initWorld(world, 0, 6, 4, 1, 2, 1, 5, 0, 6);
+    BitboardFloodEngine engine = (BitboardFloodEngine) world.game.engine;
+    RegionState first = engine.regionState();
+    t.checkExpect(first.floodedCells, 1);
+    RegionGraph graph = engine.labeled.graph;
+
+    // regions are labeled flooded from the start of the engine, wherever it is
+    BitboardFloodEngine middle = new BitboardFloodEngine(this.unfloodedColumnBoard(), 4, 2);
+    t.checkExpect(middle.regionState().floodedCells, 2);
+    t.checkExpect(middle.regionState().flooded,
+        new RegionFloodEngine(this.unfloodedColumnBoard(), 4).state.flooded);
+    t.checkExpect(((BitboardFloodEngine) middle.snapshot()).start, 4);
+
+    // later searches flood the regions absorbed since instead of labeling again
+    world.game.play(1);
+    world.game.play(6);
+    world.game.play(4);
+    RegionState later = engine.regionState();
+    t.checkExpect(engine.labeled.graph == graph, true);
+    t.checkExpect(later.floodedCells, 4);
+    t.checkExpect(later.gains(7), new int[] { 0, 1, 1, 0, 0, 1, 0 });
+    t.checkExpect(later.gains(7), new RegionState(new RegionGraph(world.game.board), 0)
+        .gains(7));
+    t.checkExpect(first.floodedCells, 1);
+
+    // taking moves back past the labeled flood labels the board again
+    world.game.jumpTo(1);
+    t.checkExpect(engine.labeled, null);
+    RegionState undone = engine.regionState();
+    t.checkExpect(engine.labeled.graph == graph, false);
+    t.checkExpect(undone.floodedCells, 2);
+    t.checkExpect(undone.gains(7), new int[] { 0, 0, 1, 0, 0, 1, 1 });
+  }
+
+  // to test the methods frontier and reach
+  void testBitboardFrontier(Tester t) {
+    PackedBoard board = this.columnBoard();
+    BitboardFloodEngine engine = new BitboardFloodEngine(board, 0, 2);
+    t.checkExpect(engine.reach(0, 0), 15L);
+    t.checkExpect(engine.reach(2, 2), 15L);
+
+    // the bit past the end of the first row touches the flood but holds no cell
+    t.checkExpect(engine.frontier(), 2);
+    engine.flood(1);
+    t.checkExpect(engine.frontier(), 0);
+
+    // rows of two words count the same frontier as the regions and the board do
+    FloodItGame regions = new FloodItGame(70, 4, 5);
+    FloodItGame bitboard = new FloodItGame(70, 4, 5, "bitboard");
+    regions.initBoard();
+    bitboard.initBoard();
+    regions.engine = regions.newEngine();
+    bitboard.engine = bitboard.newEngine();
+    for (int move = 0; move < 30; move++) {
+      int touching = 0;
+      for (int cell = 0; cell < bitboard.board.size(); cell++) {
+        if (bitboard.board.bordersFlood(cell)) {
+          touching++;
+        }
+      }
+      t.checkExpect(bitboard.engine.frontier(), touching);
+      t.checkExpect(regions.engine.frontier(), touching);
+      regions.engine.flood(move % 4);
+      bitboard.engine.flood(move % 4);
+    }
+  }
+
+  // test methods for the FloodItGame class
+  // to test the four arg constructor and the method newEngine
+  void testNewEngine(Tester t) {
+    this.initTestExamples();
+
+    FloodItWorld bitboard = new FloodItWorld(3, 7, 2, "bitboard");
+    this.initWorld(bitboard, 0, 6, 4, 1, 2, 1, 5, 0, 6);
+    t.checkExpect(bitboard.game.engine instanceof BitboardFloodEngine, true);
+    t.checkExpect(world1.game.engine instanceof RegionFloodEngine, true);
+    t.checkExpect(bitboard.game.maxClicksAllowed, world1.game.maxClicksAllowed);
+
+    int[] moves = { 1, 2, 6, 5, 4, 0 };
+    for (int color : moves) {
+      bitboard.game.play(color);
+      world1.game.play(color);
+      t.checkExpect(((PackedBoard) bitboard.game.board).flooded,
+          ((PackedBoard) world1.game.board).flooded);
+    }
+    bitboard.game.jumpTo(2);
+    world1.game.jumpTo(2);
+    t.checkExpect(((PackedBoard) bitboard.game.board).flooded,
+        ((PackedBoard) world1.game.board).flooded);
+
+    t.checkConstructorException(new IllegalArgumentException("Unknown flood engine: cells"),
+        "FloodItGame", 3, 7, 2L, "cells");
+    t.checkConstructorException(new IllegalArgumentException("Can't play with 257 colors"),
+        "FloodItGame", 3, 257, 2L, "regions");
+
+    // colors past 127 don't come back negative from their byte
+    FloodItGame manyColors = new FloodItGame(10, 200, 1L);
+    manyColors.initBoard();
+    manyColors.initNeighbors();
+    boolean inRange = true;
+    boolean pastSigned = false;
+    for (int i = 0; i < manyColors.board.size(); i++) {
+      inRange = inRange && manyColors.board.color(i) >= 0 && manyColors.board.color(i) < 200;
+      pastSigned = pastSigned || manyColors.board.color(i) >= 128;
+    }
+    t.checkExpect(inRange, true);
+    t.checkExpect(pastSigned, true);
+    int last = manyColors.board.size() - 1;
+    int color = manyColors.board.color(last);
+    int remaining = manyColors.board.remaining(199);
+    manyColors.board.setColor(last, 199);
+    t.checkExpect(manyColors.board.color(last), 199);
+    t.checkExpect(manyColors.board.remaining(199), remaining + (color == 199 ? 0 : 1));
+    manyColors.board.setColor(last, color);
+    t.checkExpect(manyColors.board.remaining(199), remaining);
+  }
+
+  // to test the method defaultMaxClicks
+  void testDefaultMaxClicks(Tester t) {
+    t.checkExpect(new FloodItGame(3, 7).defaultMaxClicks(), 20);
+    t.checkExpect(new FloodItGame(2, 3).defaultMaxClicks(), 11);
+    t.checkExpect(new FloodItGame(1, 0).defaultMaxClicks(), 5);
+    t.checkExpect(new FloodItGame(200, 8).defaultMaxClicks(), 100);
+  }
+
+  // test methods for the GameHistory class
+  // to test the methods played, canUndo, canRedo and jumpTo
+  void testGameHistory(Tester t) {
+    this.initTestExamples();
+
+    FloodItGame game = world1.game;
+    game.history = new GameHistory(game, 2);
+    t.checkExpect(game.history.canUndo(), false);
+    game.play(1);
+    game.play(2);
+    game.play(0);
+    t.checkExpect(game.history.moves.size, 3);
+    t.checkExpect(game.history.snapshots.size(), 2);
+    t.checkExpect(game.board.isFlooded(7), true);
+
+    game.history.jumpTo(game, 1);
+    t.checkExpect(game.userClicksCount, 1);
+    t.checkExpect(game.floodColor, 1);
+    t.checkExpect(game.board.isFlooded(3), true);
+    t.checkExpect(game.board.isFlooded(4), false);
+    t.checkExpect(game.board.color(4), 2);
+    t.checkExpect(game.board.isFlooded(7), false);
+    t.checkExpect(game.history.canRedo(), true);
+
+    // a new move drops the undone ones
+    game.play(6);
+    t.checkExpect(game.history.moves.size, 2);
+    t.checkExpect(game.history.snapshots.size(), 2);
+    t.checkExpect(game.history.canRedo(), false);
+    t.checkExpect(game.board.isFlooded(1), true);
+
+    game.history.jumpTo(game, 0);
+    t.checkExpect(game.floodColor, 0);
+    t.checkExpect(game.board.floodedCount(), 1);
+    game.history.jumpTo(game, 2);
+    t.checkExpect(game.board.floodedCount(), 3);
+    t.checkExpect(game.floodColor, 6);
+    t.checkException(new IllegalArgumentException("No move 5 in a history of 2"),
+        game.history, "jumpTo", game, 5);
+  }
+
+  // test methods for the BoardGenerator class
+  // to test the method fill
+  void testFill(Tester t) {
+    BoardGenerator generator = new BoardGenerator(42, 5);
+    PackedBoard first = new PackedBoard(40, 5);
+    first.flood(0);
+    generator.fill(first, 0);
+    t.checkExpect(first.isFlooded(0), false);
+    t.checkExpect(first.colorsRemaining(), 5);
+    PackedBoard again = new PackedBoard(40, 5);
+    generator.fill(again, 0);
+    t.checkExpect(again, first);
+
+    // another board number draws another board, straight into its cells
+    PackedBoard next = new PackedBoard(40, 5);
+    byte[] drawn = next.colors;
+    generator.fill(next, 1);
+    t.checkExpect(Arrays.equals(next.colors, first.colors), false);
+    t.checkExpect(next.colors == drawn, true);
+
+    // a board big enough to be filled in parallel matches one filled block by block
+    PackedBoard big = new PackedBoard(520, 5);
+    generator.fill(big, 0);
+    byte[] serial = new byte[big.size()];
+    for (int block = 0; block < 17; block++) {
+      generator.fillBlock(serial, 520, 0, block);
+    }
+    t.checkExpect(big.size() >= BoardGenerator.PARALLEL_CELLS, true);
+    t.checkExpect(big.colors, serial);
   }
 
-  // returns the pressed cell based on given position
-  Cell pressedCell(Posn pos) {
+  // to test the method fillBlock
+  void testFillBlock(Tester t) {
+    BoardGenerator generator = new BoardGenerator(42, 3);
+    byte[] colors = new byte[40 * 40];
+    generator.fillBlock(colors, 40, 0, 1);
+    t.checkExpect(colors[32 * 40 - 1], (byte) 0);
+    int drawn = 0;
+    for (int i = 32 * 40; i < colors.length; i++) {
+      if (colors[i] >= 0 && colors[i] < 3) {
+        drawn++;
+      }
+    }
+    t.checkExpect(drawn, 8 * 40);
+    byte[] again = new byte[40 * 40];
+    generator.fillBlock(again, 40, 0, 1);
+    t.checkExpect(again, colors);
+  }
 
-    // gets x and y pos in game board
-    int xPos = pos.x - (this.BOARD_POSITION_IN_WINDOW - this.CELL_SIZE * this.sideLength / 2);
-    int yPos = pos.y - (this.BOARD_POSITION_IN_WINDOW - this.CELL_SIZE * this.sideLength / 2);
+  // to test the methods key and mix
+  void testKey(Tester t) {
+    BoardGenerator generator = new BoardGenerator(42, 3);
+    t.checkExpect(generator.key(0, 0), generator.key(0, 0));
+    t.checkExpect(generator.key(0, 1) == generator.key(1, 0), false);
+    t.checkExpect(generator.key(0, 1) == generator.key(0, 0), false);
+    t.checkExpect(new BoardGenerator(43, 3).key(0, 0) == generator.key(0, 0), false);
+    t.checkExpect(BoardGenerator.mix(0), 0L);
+    t.checkExpect(BoardGenerator.mix(1) == BoardGenerator.mix(2), false);
+  }
 
-    // index of column and row
-    int columnIndex = xPos / this.CELL_SIZE;
-    int rowIndex = yPos / this.CELL_SIZE;
+  // to test the methods initBoard and initNeighbors
+  void testInitGame(Tester t) {
+    this.initTestExamples();
 
-    // returns cell pressed
-    return this.board.get(rowIndex).get(columnIndex);
+    FloodItGame game = new FloodItGame(3, 2, 2);
+    game.initBoard();
+    t.checkExpect(game.board.size(), 9);
+    t.checkExpect(game.board.isFlooded(0), true);
+    t.checkExpect(game.floodColor, game.board.color(0));
+    game.initNeighbors();
+    t.checkExpect(game.engine.allFlooded(), false);
+
+    FloodItGame sameSeed = new FloodItGame(3, 2, 2);
+    sameSeed.initBoard();
+    t.checkExpect(((PackedBoard) sameSeed.board).colors, ((PackedBoard) game.board).colors);
+    t.checkExpect(sameSeed.boardsGenerated, 1);
   }
 
-  // handles ticking of the clock and updating the flood it world if needed
-  public void onTick() {
-    // this means that there is still more waterfalling to do, so the user shouldnt
-    // be able to click another button
-    if (this.currentlyWaterfalling) {
-
-      ArrayList<Cell> cellsToPotentiallyChange = this.propogateOrder.get(this.propogateIndex);
-      for (Cell cell : cellsToPotentiallyChange) {
-        if (cell.flooded) {
-          cell.color = this.floodColor;
-        }
-      }
+  // to test the method restart
+  void testRestart(Tester t) {
+    FloodItGame game = new FloodItGame(4, 3, 7);
+    game.initBoard();
+    game.initNeighbors();
+    game.userClicksCount = 3;
+    game.maxClicksAllowed = 2;
+    Board firstBoard = game.board;
+    byte[] firstColors = ((PackedBoard) firstBoard).colors.clone();
+    game.restart();
+    t.checkExpect(game.userClicksCount, 0);
+    t.checkExpect(game.maxClicksAllowed, 7);
+    t.checkExpect(game.board.isFlooded(0), true);
+
+    // the next board is drawn into the cells of the last one
+    t.checkExpect(game.board == firstBoard, true);
+    t.checkExpect(Arrays.equals(((PackedBoard) game.board).colors, firstColors), false);
+
+    // the same seed restarts onto the same boards, in the same order
+    FloodItGame replay = new FloodItGame(4, 3, 7);
+    replay.initBoard();
+    t.checkExpect(((PackedBoard) replay.board).colors, firstColors);
+    replay.restart();
+    t.checkExpect(((PackedBoard) replay.board).colors, ((PackedBoard) game.board).colors);
+    t.checkExpect(replay.boardsGenerated, 2);
+  }
 
-      if (this.propogateIndex == this.propogateOrder.size() - 1) {
-        this.currentlyWaterfalling = false;
-        this.propogateIndex = 0;
+  // to test the method startEngine, and the reset method of GameHistory
+  void testStartEngine(Tester t) {
+    for (String engineName : new String[] { "regions", "bitboard" }) {
+      FloodItGame game = new FloodItGame(4, 3, 7, engineName);
+      game.initBoard();
+      game.initNeighbors();
+      FloodEngine engine = game.engine;
+      GameHistory history = game.history;
+      game.play(new GreedyAbsorbStrategy().nextColor(game));
+      t.checkExpect(history.current, 1);
+
+      // restarting starts the same engine and history over on the next board
+      game.restart();
+      t.checkExpect(game.engine == engine, true);
+      t.checkExpect(game.history == history, true);
+      t.checkExpect(history.current, 0);
+      t.checkExpect(history.moves.size, 0);
+      t.checkExpect(history.snapshots.size(), 1);
+      t.checkExpect(history.startColor, game.floodColor);
+
+      FloodItGame fresh = new FloodItGame(4, 3, 7, engineName);
+      fresh.boardsGenerated = 1;
+      fresh.initBoard();
+      fresh.initNeighbors();
+      t.checkExpect(((PackedBoard) game.board).flooded, ((PackedBoard) fresh.board).flooded);
+      t.checkExpect(game.maxClicksAllowed, fresh.maxClicksAllowed);
+      t.checkExpect(game.engine.frontier(), fresh.engine.frontier());
+    }
+  }
 
-        // this means the user has won the game
-        if (this.wholeBoardFlooded()) {
-          this.endScreen("You Win");
-        }
+  // to test the method reusableBoard
+  void testReusableBoard(Tester t) {
+    FloodItGame game = new FloodItGame(4, 3, 7);
+    t.checkExpect(game.reusableBoard(), new PackedBoard(4, 3));
+    game.initBoard();
+    t.checkExpect(game.reusableBoard() == game.board, true);
 
-        // this means user has lost the game
-        if (this.userClicksCount >= this.maxClicksAllowed) {
-          this.endScreen("You Lose");
-        }
-      }
-      else {
-        this.propogateIndex++;
-      }
-    }
+    // a board of another size can't hold the cells of this game
+    game.board = new PackedBoard(3, 3);
+    t.checkExpect(game.reusableBoard().sideLength(), 4);
   }
 
-  // EFFECT: modifies gameBoard, drawing last scene when user wins or loses
-  void endScreen(String msg) {
-    this.gameBoard = new WorldScene(500, 500);
-    this.gameBoard.placeImageXY(new TextImage(msg, 30, Color.black), 250, 70);
+  // to test the method play
+  void testPlay(Tester t) {
+    this.initTestExamples();
+
+    FloodItGame game = world3.game;
+    t.checkExpect(game.play(1), false);
+    t.checkExpect(game.userClicksCount, 0);
+    t.checkExpect(game.play(2), true);
+    t.checkExpect(game.userClicksCount, 1);
+    t.checkExpect(game.floodColor, 2);
+    t.checkExpect(game.board.isFlooded(3), true);
+    t.checkExpect(game.play(0), true);
+    t.checkExpect(game.wholeBoardFlooded(), true);
+
+    // a flooded board takes no more moves
+    t.checkExpect(game.play(1), false);
+    t.checkExpect(game.userClicksCount, 2);
+    t.checkExpect(game.floodColor, 0);
   }
 
-  // EFFECT: changes user clicks count in response to key press events
-  public void onKeyEvent(String key) {
+  // to test the methods playAll
+  void testPlayAll(Tester t) {
+    this.initTestExamples();
 
-    // restarts game on r pressed
-    if (key.equals("r")) {
+    FloodItGame game = world3.game;
+    t.checkExpect(game.playAll(new int[] { 1, 2, 2, 0 }), 2);
+    t.checkExpect(game.userClicksCount, 2);
+    t.checkExpect(game.wholeBoardFlooded(), true);
+
+    // a batch plays out the same as its moves one at a time
+    FloodItGame oneByOne = world4.game;
+    oneByOne.play(2);
+    oneByOne.play(0);
+    t.checkExpect(game.board, oneByOne.board);
+    t.checkExpect(game.history.moves.size, 2);
+
+    t.checkExpect(world1.game.playAll(new int[] { 1, 2, 4 }, 1), 1);
+    t.checkExpect(world1.game.floodColor, 1);
+    t.checkExpect(world1.game.playAll(new int[0]), 0);
+  }
 
-      System.out.println("hi");
+  // to test the method measuredFlood, and measuring initBoard
+  void testMeasuredFlood(Tester t) {
+    this.initTestExamples();
 
-      this.gameBoard = new WorldScene(500, 500);
+    MetricsTotals totals = new MetricsTotals();
+    FloodItGame game = world3.game;
+    game.metrics = totals;
+    t.checkExpect(game.play(2), true);
+    t.checkExpect(totals.moves, 1);
+    t.checkExpect(totals.absorbed, 2L);
+    t.checkExpect(totals.frontier, 1L);
+    t.checkExpect(totals.moveNanos > 0, true);
+
+    // moves that aren't sampled are still played
+    game.metrics = new SampledMetrics(totals, 2);
+    game.play(0);
+    game.play(1);
+    t.checkExpect(totals.moves, 2);
+    t.checkExpect(totals.absorbed, 3L);
+    t.checkExpect(game.wholeBoardFlooded(), true);
+
+    game.initBoard();
+    t.checkExpect(totals.boards, 1);
+    t.checkExpect(totals.boardNanos > 0, true);
+  }
 
-      // set up board
-      this.initColors();
-      this.initBoard();
-      this.initNeighbors();
+  // to test the methods undo, redo and jumpTo
+  void testUndo(Tester t) throws IOException {
+    this.initTestExamples();
 
-      this.userClicksCount = 0;
-      this.maxClicksAllowed = (int) (this.sideLength + 2 * this.numColors + 3);
-      if (this.maxClicksAllowed < 5) {
-        this.maxClicksAllowed = 5;
-      }
-      if (this.maxClicksAllowed > 100) {
-        this.maxClicksAllowed = 100;
-      }
-    }
+    FloodItGame game = world3.game;
+    t.checkExpect(game.undo(), false);
+    game.play(2);
+    t.checkExpect(game.undo(), true);
+    t.checkExpect(game.userClicksCount, 0);
+    t.checkExpect(game.floodColor, 1);
+    t.checkExpect(game.board.isFlooded(3), false);
+    t.checkExpect(game.redo(), true);
+    t.checkExpect(game.userClicksCount, 1);
+    t.checkExpect(game.floodColor, 2);
+    t.checkExpect(game.board.isFlooded(3), true);
+    t.checkExpect(game.redo(), false);
+    game.jumpTo(0);
+    t.checkExpect(game.board.floodedCount(), 1);
+
+    GameFile file = new GameFile(Files.createTempFile("flood-it", ".game"));
+    game.record(file);
+    t.checkException(new IllegalStateException("Moves of a recorded game can't be taken back"),
+        game, "jumpTo", 1);
+    game.stopRecording();
+    Files.delete(file.path);
   }
 
-  // EFFECT: handles mouse clicks with given mouse location and updates the
-  // userClicksCount and water falling
-  public void onMouseClicked(Posn pos) {
+  // to test the methods outOfMoves and won
+  void testWon(Tester t) {
+    this.initTestExamples();
 
-    // if user pressed within bounds of game board
-    if (!this.currentlyWaterfalling
-        && pos.x > this.BOARD_POSITION_IN_WINDOW - this.CELL_SIZE * this.sideLength / 2
-        && pos.x < this.BOARD_POSITION_IN_WINDOW + this.CELL_SIZE * this.sideLength / 2
-        && pos.y > this.BOARD_POSITION_IN_WINDOW - this.CELL_SIZE * this.sideLength / 2
-        && pos.y < this.BOARD_POSITION_IN_WINDOW + this.CELL_SIZE * this.sideLength / 2) {
+    FloodItGame game = world3.game;
+    game.maxClicksAllowed = 2;
+    t.checkExpect(game.won(), false);
+    t.checkExpect(game.outOfMoves(), false);
+    game.play(2);
+    game.play(0);
+    t.checkExpect(game.outOfMoves(), true);
+    t.checkExpect(game.won(), true);
+
+    game.userClicksCount = 3;
+    t.checkExpect(game.won(), false);
+  }
 
-      Color newFloodColor = this.pressedCell(pos).color;
+  // to test the methods searchState and hint
+  void testHint(Tester t) {
+    this.initTestExamples();
 
-      if (newFloodColor != this.floodColor) {
-        this.floodColor = newFloodColor;
+    RegionState state = world1.game.searchState();
+    t.checkExpect(state, ((RegionFloodEngine) world1.game.engine).state);
+    state.absorb(1, new IntList());
+    t.checkExpect(world1.game.board.isFlooded(3), false);
+
+    t.checkExpect(world1.game.hint(new GreedyAbsorbStrategy()), 1);
+    t.checkExpect(world3.game.hint(new GreedyAbsorbStrategy()), 2);
+
+    // a move taken back leaves the flooded cells in its color until the waterfall
+    // repaints them, without joining them to the unflooded cells of that color
+    FloodItWorld bitboard = new FloodItWorld(3, 3, 2, "bitboard");
+    this.initWorld(bitboard, 0, 1, 2, 1, 1, 2, 2, 2, 2);
+    bitboard.onMouseClicked(bitboard.viewport.positionOf(1));
+    bitboard.finishWaterfall();
+    bitboard.onKeyEvent("u");
+    t.checkExpect(bitboard.game.board.color(0), 1);
+    t.checkExpect(bitboard.game.board.floodedCount(), 1);
+    RegionState undone = bitboard.game.searchState();
+    t.checkExpect(undone.floodedCells, 1);
+    t.checkExpect(undone.gains(3), new int[] { 0, 3, 0 });
+    t.checkExpect(bitboard.game.hint(new GreedyAbsorbStrategy()), 1);
+  }
 
-        // go through all of the cells on the board
-        // if any of them are flooded already, check its neighbors
-        for (ArrayList<Cell> row : this.board) {
-          for (Cell cell : row) {
-            cell.neighborWithColor(this.floodColor);
-          }
-        }
-        this.userClicksCount++;
-        this.currentlyWaterfalling = true;
-      }
+  // test methods for the RandomStrategy class
+  // to test the method nextColor
+  void testRandomNextColor(Tester t) {
+    this.initTestExamples();
 
+    Strategy random = new RandomStrategy();
+    for (int i = 0; i < 10; i++) {
+      int color = random.nextColor(world1.game);
+      t.checkExpect(color != world1.game.floodColor, true);
+      t.checkExpect(world1.game.board.remaining(color) > 0, true);
     }
+
+    // either of the two colors left may be picked, and then only the last one
+    int first = random.nextColor(world3.game);
+    t.checkExpect(first == 0 || first == 2, true);
+    world3.game.play(2);
+    t.checkExpect(random.nextColor(world3.game), 0);
   }
 
-}
+  // test methods for the GreedyAbsorbStrategy class
+  // to test the methods nextColor, bestColor and bestOf
+  void testGreedyAbsorb(Tester t) {
+    this.initTestExamples();
 
-// examples class of FloodIt
-class ExamplesFloodIts {
-  FloodItWorld world1;
-  FloodItWorld world2;
-  FloodItWorld world3;
-  FloodItWorld world4;
+    GreedyAbsorbStrategy greedy = new GreedyAbsorbStrategy();
+    // only colors 1 and 6 border the first cell, and both absorb one cell
+    t.checkExpect(greedy.nextColor(world1.game), 1);
+    t.checkExpect(greedy.bestColor(world3.game.searchState(), 3), 2);
 
-  // represent examples of cells in the board
-  Cell firstCell = new Cell(new Color(207, 235, 55));
-  Cell secondCell = new Cell(new Color(187, 232, 235));
-  Cell thirdCell = new Cell(new Color(173, 72, 20));
-  Cell fourthCell = new Cell(new Color(173, 72, 20));
+    PackedBoard board = this.columnBoard();
+    board.setColor(2, 1);
+    board.setColor(5, 1);
+    t.checkExpect(greedy.bestColor(new RegionFloodEngine(board, 0).regionState(), 2), 1);
+    t.checkExpect(greedy.bestOf(new int[] { 0, 2, 2 }), 1);
+  }
 
-  // to initiate all example FloodItWorlds used in tests and their fields
-  void initTestExamples() {
-    this.world1 = new FloodItWorld(3, 7, 2);
-    this.world2 = new FloodItWorld(3, 7, 2);
-    this.world3 = new FloodItWorld(2, 3, 4);
-    this.world4 = new FloodItWorld(2, 3, 4);
+  // test methods for the GreedyFrontierStrategy class
+  // to test the method nextColor
+  void testGreedyFrontier(Tester t) {
+    this.initTestExamples();
 
-    world1.initColors();
-    world1.initBoard();
-    world1.initNeighbors();
+    // colors 1 and 6 each leave three cells bordering, and both absorb one cell
+    t.checkExpect(new GreedyFrontierStrategy().nextColor(world1.game), 1);
+    // flooding color 0 leaves two cells bordering, color 2 only one
+    t.checkExpect(new GreedyFrontierStrategy().nextColor(world3.game), 0);
+    world3.game.play(2);
+    t.checkExpect(new GreedyFrontierStrategy().nextColor(world3.game), 0);
+  }
+
+  // test methods for the LookaheadStrategy class
+  // to test the method nextColor
+  void testLookahead(Tester t) {
+    this.initTestExamples();
 
-    world2.initColors();
-    world2.initBoard();
-    world2.initNeighbors();
+    // either color wins in two moves, so the lowest one is picked
+    t.checkExpect(new LookaheadStrategy(3, Long.MAX_VALUE).nextColor(world3.game), 0);
 
-    world3.initColors();
-    world3.initBoard();
-    world3.initNeighbors();
+    // greedy takes the four cells of color 1 first, but the single cell of color 2
+    // opens up the fifteen cells of color 3 on the next move
+    LookaheadStrategy lookahead = new LookaheadStrategy(2, Long.MAX_VALUE);
+    PackedBoard board = new PackedBoard(5, 5);
+    for (int i = 0; i < board.size(); i++) {
+      board.setColor(i, 3);
+    }
+    for (int i = 1; i < 5; i++) {
+      board.setColor(i, 1);
+      board.setColor(5 + i, 4);
+    }
+    board.setColor(0, 0);
+    board.setColor(5, 2);
+    board.flood(0);
+    FloodItGame game = new FloodItGame(5, 5);
+    game.board = board;
+    game.engine = new RegionFloodEngine(board, 0);
+    t.checkExpect(new GreedyAbsorbStrategy().nextColor(game), 1);
+    t.checkExpect(lookahead.nextColor(game), 2);
+
+    // with no time to look ahead it falls back on greedy
+    t.checkExpect(new LookaheadStrategy(3, 0).nextColor(game), 1);
+  }
 
-    world4.initColors();
-    world4.initBoard();
-    world4.initNeighbors();
+  // to test the methods lookup and store
+  void testTranspositionTable(Tester t) {
+    TranspositionTable table = new TranspositionTable(1);
+    t.checkExpect(table.lookup(6), 0);
+    table.store(6, 3);
+    t.checkExpect(table.lookup(6), 3);
+
+    // a smaller bound for the same state doesn't replace what was already proven
+    table.store(6, 2);
+    t.checkExpect(table.lookup(6), 3);
+
+    // a full bucket evicts the entry backed by the least search
+    table.store(2, 1);
+    table.store(4, 5);
+    t.checkExpect(table.lookup(6), 3);
+    t.checkExpect(table.lookup(2), 0);
+    t.checkExpect(table.lookup(4), 5);
   }
 
-  // test methods for the Cell class
-  // to test the method setTop
-  void testSetTop(Tester t) {
+  // to test the method solve
+  void testSolve(Tester t) {
     this.initTestExamples();
 
-    world1.board.get(2).get(0).setTop(firstCell);
-    t.checkExpect(world1.board.get(2).get(0).top, firstCell);
-
-    world2.board.get(0).get(1).setTop(secondCell);
-    t.checkExpect(world2.board.get(0).get(1).top, secondCell);
+    t.checkExpect(new OptimalSolver(world3.game.searchState(), 3, 4, 100).solve(),
+        new int[] { 0, 2 });
 
-    world3.board.get(1).get(0).setTop(thirdCell);
-    t.checkExpect(world3.board.get(1).get(0).top, thirdCell);
+    // every cell is its own region, so each of the seven moves takes in one or two
+    OptimalSolver solver = new OptimalSolver(world1.game.searchState(), 7, 4, 1000);
+    t.checkExpect(solver.solve(), new int[] { 1, 2, 0, 1, 4, 5, 6 });
+    t.checkExpect(solver.lowerBound, 7);
 
-    world4.board.get(0).get(0).setTop(fourthCell);
-    t.checkExpect(world4.board.get(0).get(0).top, fourthCell);
+    // running out of nodes still leaves the bound proven so far
+    OptimalSolver limited = new OptimalSolver(world1.game.searchState(), 7, 4, 5);
+    t.checkExpect(limited.solve(), null);
+    t.checkExpect(limited.lowerBound, 7);
   }
 
-  // to test the method setBottom
-  void testSetBottom(Tester t) {
+  // to test the method heuristic
+  void testHeuristic(Tester t) {
     this.initTestExamples();
 
-    world1.board.get(2).get(0).setBottom(firstCell);
-    t.checkExpect(world1.board.get(2).get(0).bottom, firstCell);
+    // six colors are left, and the farthest cell is four regions away
+    OptimalSolver solver = new OptimalSolver(world1.game.searchState(), 7, 4, 1000);
+    t.checkExpect(solver.heuristic(solver.root), 6);
+    t.checkExpect(solver.remainingCells, new int[] { 1, 2, 1, 0, 1, 1, 2 });
 
-    world2.board.get(0).get(1).setBottom(secondCell);
-    t.checkExpect(world2.board.get(0).get(1).bottom, secondCell);
+    // the last cell is two regions away, across one cell of color 0
+    OptimalSolver small = new OptimalSolver(world3.game.searchState(), 3, 4, 100);
+    t.checkExpect(small.heuristic(small.root), 2);
+  }
 
-    world3.board.get(1).get(0).setBottom(thirdCell);
-    t.checkExpect(world3.board.get(1).get(0).bottom, thirdCell);
+  // to test the method forcedColor
+  void testForcedColor(Tester t) {
+    this.initTestExamples();
 
-    world4.board.get(0).get(0).setBottom(fourthCell);
-    t.checkExpect(world4.board.get(0).get(0).bottom, fourthCell);
+    // the only cell of color 0 borders the flooded cell, but one of the two cells of
+    // color 2 doesn't
+    OptimalSolver solver = new OptimalSolver(world3.game.searchState(), 3, 4, 100);
+    solver.heuristic(solver.root);
+    t.checkExpect(solver.forcedColor(new int[] { 1, 0, 0 }), 0);
+    t.checkExpect(solver.forcedColor(new int[] { 0, 0, 1 }), -1);
   }
 
-  // to test the method setLeft
-  void testSetLeft(Tester t) {
-    this.initTestExamples();
+  // to test the method byGain
+  void testByGain(Tester t) {
+    OptimalSolver solver = new OptimalSolver(
+        new RegionFloodEngine(this.columnBoard(), 0).regionState(), 3, 4, 100);
+    t.checkExpect(solver.byGain(new int[] { 1, 3, 2 }), new int[] { 1, 2, 0 });
+    t.checkExpect(solver.byGain(new int[] { 2, 0, 2 }), new int[] { 0, 2, 1 });
+  }
 
-    world1.board.get(2).get(0).setLeft(firstCell);
-    t.checkExpect(world1.board.get(2).get(0).left, firstCell);
+  // to test the method calibrate
+  void testCalibrate(Tester t) {
+    this.initTestExamples();
 
-    world2.board.get(0).get(1).setLeft(secondCell);
-    t.checkExpect(world2.board.get(0).get(1).left, secondCell);
+    // the optimum of seven moves plus the slack
+    t.checkExpect(world1.game.maxClicksAllowed, 10);
+    t.checkExpect(new MoveLimitCalibrator(1, 64, Long.MAX_VALUE).calibrate(world1.game), 8);
 
-    world3.board.get(1).get(0).setLeft(thirdCell);
-    t.checkExpect(world3.board.get(1).get(0).left, thirdCell);
+    // too many regions to solve exactly leaves the greedy estimate
+    t.checkExpect(new MoveLimitCalibrator(0, 8, Long.MAX_VALUE).calibrate(world1.game), 7);
+    t.checkExpect(new MoveLimitCalibrator(0, 64, Long.MAX_VALUE).calibrate(world3.game), 2);
 
-    world4.board.get(0).get(0).setLeft(fourthCell);
-    t.checkExpect(world4.board.get(0).get(0).left, fourthCell);
+    // with no time at all it falls back on the default limit
+    t.checkExpect(new MoveLimitCalibrator(3, 64, -1).calibrate(world1.game), 20);
   }
 
-  // to test the method setRight
-  void testSetRight(Tester t) {
+  // to test the method greedyMoves
+  void testGreedyMoves(Tester t) {
     this.initTestExamples();
 
-    world1.board.get(2).get(0).setRight(firstCell);
-    t.checkExpect(world1.board.get(2).get(0).right, firstCell);
+    MoveLimitCalibrator calibrator = new MoveLimitCalibrator(3, 64, Long.MAX_VALUE);
+    RegionState state = world1.game.searchState();
+    t.checkExpect(calibrator.greedyMoves(state, 7, System.nanoTime()), 7);
+    t.checkExpect(state.allFlooded(), true);
+    t.checkExpect(calibrator.greedyMoves(world3.game.searchState(), 3, System.nanoTime()), 2);
+    t.checkExpect(new MoveLimitCalibrator(3, 64, -1).greedyMoves(world1.game.searchState(), 7,
+        System.nanoTime()), -1);
+  }
 
-    world2.board.get(0).get(1).setRight(secondCell);
-    t.checkExpect(world2.board.get(0).get(1).right, secondCell);
+  // to test the method nextColor of OptimalStrategy
+  void testOptimalStrategy(Tester t) {
+    this.initTestExamples();
 
-    world3.board.get(1).get(0).setRight(thirdCell);
-    t.checkExpect(world3.board.get(1).get(0).right, thirdCell);
+    t.checkExpect(new OptimalStrategy(1000).nextColor(world1.game), 1);
+    t.checkExpect(new OptimalStrategy(1000).nextColor(world3.game), 0);
 
-    world4.board.get(0).get(0).setRight(fourthCell);
-    t.checkExpect(world4.board.get(0).get(0).right, fourthCell);
+    // too few nodes to solve the board leaves it to the lookahead
+    t.checkExpect(new OptimalStrategy(5).nextColor(world1.game),
+        new LookaheadStrategy(3, Long.MAX_VALUE).nextColor(world1.game));
   }
 
-  // to test the method flooded
-  void testFlooded(Tester t) {
+  // to test the methods bestFirstMove and score
+  void testScore(Tester t) {
     this.initTestExamples();
-    world1.board.get(0).get(0).flooded();
-    t.checkExpect(world1.board.get(0).get(0).flooded, true);
 
-    world2.board.get(2).get(1).flooded();
-    t.checkExpect(world2.board.get(2).get(1).flooded, true);
+    LookaheadStrategy lookahead = new LookaheadStrategy(3, Long.MAX_VALUE);
+    long start = System.nanoTime();
+    GameState state = world3.game.gameState();
+    t.checkExpect(lookahead.score(state, 2, 1, start), 3L);
+    t.checkExpect(lookahead.score(state, 2, 2, start), (1L << 32) | 4);
+    t.checkExpect(lookahead.bestFirstMove(state, 2, start), 0);
+    t.checkExpect(state.floodedCells, 1);
+    t.checkExpect(new LookaheadStrategy(3, 0).score(state, 2, 2, start - 1), -1L);
+  }
 
-    world3.board.get(1).get(1).flooded();
-    t.checkExpect(world3.board.get(1).get(1).flooded, true);
+  // test methods for the SimulationResult class
+  // to test the method add
+  void testAddResult(Tester t) {
+    SimulationResult result = new SimulationResult();
+    result.add(new GameResult(true, 10, 20));
+    result.add(new GameResult(false, 30, 20));
+    t.checkExpect(result.games, 2);
+    t.checkExpect(result.wins, 1);
+    t.checkExpect(result.totalMoves, 40L);
+    t.checkExpect(result.mostMoves, 30);
+    t.checkInexact(result.winRate(), 0.5, 0.001);
+    t.checkInexact(result.averageMoves(), 20.0, 0.001);
+    t.checkInexact(result.averageMaxClicks(), 20.0, 0.001);
+  }
 
-    world4.board.get(0).get(1).flooded();
-    t.checkExpect(world4.board.get(0).get(1).flooded, true);
+  // to test the method combine
+  void testCombine(Tester t) {
+    SimulationResult first = new SimulationResult();
+    first.add(new GameResult(true, 10, 20));
+    SimulationResult second = new SimulationResult();
+    second.add(new GameResult(true, 14, 22));
+    second.add(new GameResult(false, 25, 22));
+    first.combine(second);
+    t.checkExpect(first.games, 3);
+    t.checkExpect(first.wins, 2);
+    t.checkExpect(first.totalMaxClicks, 64L);
+    t.checkExpect(first.mostMoves, 25);
+    t.checkExpect(first.report(),
+        "games 3, won 66.67%, moves 16.33 avg / 25 max, limit 21.33 avg");
   }
 
-  // to test the method neighborWithColor
-  void testNeighborWithColor(Tester t) {
-    this.initTestExamples();
+  // test methods for the FloodItSimulator class
+  // to test the method playGame
+  void testPlayGame(Tester t) {
+    FloodItSimulator simulator = new FloodItSimulator(6, 4, new RandomStrategy());
+    GameResult result = simulator.playGame(3);
+    t.checkExpect(simulator.playGame(3), result);
+    t.checkExpect(result.maxClicksAllowed, 10);
+    t.checkExpect(result.won, result.moves <= 10);
+  }
 
-    FloodItWorld testWorld = new FloodItWorld(3, 3, 234);
-    testWorld.initColors();
-    testWorld.initBoard();
-    testWorld.initNeighbors();
-    t.checkExpect(testWorld.board.get(0).get(1).flooded, false);
-    t.checkExpect(testWorld.board.get(1).get(0).flooded, true);
-    testWorld.board.get(0).get(0).neighborWithColor(new Color(199, 207, 102));
-    t.checkExpect(testWorld.board.get(0).get(1).flooded, true);
-    t.checkExpect(testWorld.board.get(1).get(1).right.flooded, false);
-    t.checkExpect(testWorld.board.get(1).get(1).bottom.flooded, false);
-    testWorld.board.get(1).get(1).flooded();
-    testWorld.board.get(1).get(1).neighborWithColor(new Color(54, 7, 248));
-    t.checkExpect(testWorld.board.get(1).get(1).right.flooded, true);
-    t.checkExpect(testWorld.board.get(1).get(1).bottom.flooded, true);
+  // to test the method run
+  void testRun(Tester t) throws InterruptedException, ExecutionException {
+    FloodItSimulator simulator = new FloodItSimulator(5, 3, new RandomStrategy());
+    SimulationResult expected = new SimulationResult();
+    for (long seed = 1; seed <= 40; seed++) {
+      expected.add(simulator.playGame(seed));
+    }
+    SimulationResult parallel = simulator.run(1, 40, 3);
+    t.checkExpect(parallel.games, 40);
+    t.checkExpect(parallel.wins, expected.wins);
+    t.checkExpect(parallel.totalMoves, expected.totalMoves);
+    t.checkExpect(parallel.mostMoves, expected.mostMoves);
+  }
 
-    FloodItWorld testWorld2 = new FloodItWorld(5, 4, 244);
-    testWorld2.initColors();
-    testWorld2.initBoard();
-    testWorld2.initNeighbors();
-    System.out.println(testWorld2.board.get(0).get(2).color);
-    t.checkExpect(testWorld2.board.get(0).get(0).flooded, true);
-    t.checkExpect(testWorld2.board.get(0).get(1).flooded, false);
-    t.checkExpect(testWorld2.board.get(1).get(0).flooded, true);
-    t.checkExpect(testWorld2.board.get(1).get(1).flooded, false);
-    testWorld2.board.get(0).get(0).neighborWithColor(new Color(91, 139, 80));
-    t.checkExpect(testWorld2.board.get(0).get(0).flooded, true);
-    t.checkExpect(testWorld2.board.get(0).get(1).flooded, true);
-    t.checkExpect(testWorld2.board.get(1).get(0).flooded, true);
-    t.checkExpect(testWorld2.board.get(1).get(1).flooded, false);
-    testWorld2.board.get(0).get(1).neighborWithColor(new Color(229, 185, 167));
-    t.checkExpect(testWorld2.board.get(0).get(2).flooded, true);
+  // to test the method strategyNamed
+  void testStrategyNamed(Tester t) {
+    t.checkExpect(FloodItSimulator.strategyNamed("random"), new RandomStrategy());
+    t.checkExpect(FloodItSimulator.strategyNamed("greedy"), new GreedyAbsorbStrategy());
+    t.checkExpect(FloodItSimulator.strategyNamed("frontier"), new GreedyFrontierStrategy());
+    t.checkExpect(FloodItSimulator.strategyNamed("lookahead"),
+        new LookaheadStrategy(3, Long.MAX_VALUE));
+    t.checkExpect(FloodItSimulator.strategyNamed("optimal"), new OptimalStrategy(5000000));
+    t.checkException(new IllegalArgumentException("Unknown strategy: best"),
+        new FloodItSimulator(3, 3, new RandomStrategy()), "strategyNamed", "best");
   }
 
   // test methods for the FloodItWorld class
@@ -536,250 +6335,385 @@ class ExamplesFloodIts {
   void testInitColors(Tester t) {
     this.initTestExamples();
 
-    t.checkExpect(world1.colorOptions,
-        new ArrayList<Color>(Arrays.asList(new Color(187, 75, 230), new Color(1, 127, 218),
-            new Color(252, 8, 219), new Color(236, 252, 115), new Color(58, 133, 19),
-            new Color(215, 190, 63), new Color(243, 141, 7), new Color(28, 177, 201),
-            new Color(218, 96, 14), new Color(70, 104, 242), new Color(90, 133, 254),
-            new Color(172, 143, 85), new Color(121, 203, 12), new Color(43, 149, 42))));
-
-    t.checkExpect(world2.colorOptions,
-        new ArrayList<Color>(Arrays.asList(new Color(187, 75, 230), new Color(1, 127, 218),
-            new Color(252, 8, 219), new Color(236, 252, 115), new Color(58, 133, 19),
-            new Color(215, 190, 63), new Color(243, 141, 7), new Color(28, 177, 201),
-            new Color(218, 96, 14), new Color(70, 104, 242), new Color(90, 133, 254),
-            new Color(172, 143, 85), new Color(121, 203, 12), new Color(43, 149, 42))));
+    t.checkExpect(world1.palette, new Palette(7));
+    t.checkExpect(world3.palette.size(), 3);
+    t.checkExpect(world3.palette.color(0), new Color(0xF3C300));
 
-    t.checkExpect(world3.colorOptions,
-        new ArrayList<Color>(
-            Arrays.asList(new Color(187, 232, 235), new Color(207, 235, 55), new Color(173, 72, 20),
-                new Color(127, 6, 218), new Color(179, 204, 206), new Color(68, 38, 147))));
+    // initializing again replaces the palette rather than growing it
+    world1.initColors();
+    t.checkExpect(world1.palette.size(), 7);
+  }
 
-    t.checkExpect(world4.colorOptions,
-        new ArrayList<Color>(
-            Arrays.asList(new Color(187, 232, 235), new Color(207, 235, 55), new Color(173, 72, 20),
-                new Color(127, 6, 218), new Color(179, 204, 206), new Color(68, 38, 147))));
+  // test methods for the Palette class
+  // to test the constructor and the methods size and color
+  void testPalette(Tester t) {
+    Palette small = new Palette(3);
+    t.checkExpect(small.size(), 3);
+    t.checkExpect(small.color(0), new Color(0xF3C300));
+    t.checkExpect(small.color(1), new Color(0x875692));
+    t.checkExpect(small.color(2), new Color(0xF38400));
+
+    // past the listed colors they go around the color wheel
+    Palette large = new Palette(24);
+    t.checkExpect(large.color(19), new Color(0x2B3D26));
+    t.checkExpect(large.color(20), Color.getHSBColor(0, 0.7f, 0.95f));
+    t.checkExpect(large.color(21), Color.getHSBColor(0.25f, 0.7f, 0.55f));
+
+    // as many colors as a board can hold are all different
+    Palette full = new Palette(127);
+    int repeats = 0;
+    for (int i = 0; i < full.size(); i++) {
+      for (int j = 0; j < i; j++) {
+        if (full.color(i).equals(full.color(j))) {
+          repeats++;
+        }
+      }
+    }
+    t.checkExpect(repeats, 0);
   }
 
+
   //tests the method initBoard
   void testInitBoard(Tester t) {
     this.initTestExamples();
 
-    firstCell.flooded();
-    firstCell.setRight(secondCell);
-    firstCell.setBottom(thirdCell);
-    secondCell.setLeft(firstCell);
-    secondCell.setBottom(fourthCell);
-    thirdCell.setTop(firstCell);
-    thirdCell.setRight(fourthCell);
-    fourthCell.setTop(secondCell);
-    fourthCell.setLeft(thirdCell);
+    FloodItWorld seeded = new FloodItWorld(2, 3, 4);
+    seeded.initBoard();
+    board2.setColor(0, 1);
+    board2.setColor(1, 2);
+    board2.setColor(2, 2);
+    board2.setColor(3, 2);
+    board2.flood(0);
+    t.checkExpect(seeded.game.board, board2);
+    t.checkExpect(seeded.game.floodColor, 1);
+    t.checkExpect(seeded.renderer.board, seeded.game.board);
+
+    // the palette doesn't draw from the seed, so the board is the same as the game's
+    FloodItGame game = new FloodItGame(2, 3, 4);
+    game.initBoard();
+    t.checkExpect(seeded.game.board, game.board);
+  }
 
-    t.checkExpect(world3.board,
-        new ArrayList<ArrayList<Cell>>(
-            Arrays.asList(new ArrayList<Cell>(Arrays.asList(firstCell, secondCell)),
+  // tests the method initNeighbors
+  void testInitNeighbors(Tester t) {
+    this.initTestExamples();
 
-                new ArrayList<Cell>(Arrays.asList(thirdCell, fourthCell)))));
+    t.checkExpect(world1.game.board.isFlooded(0), true);
+    t.checkExpect(world1.game.board.isFlooded(1), false);
+    t.checkExpect(world1.game.board.isFlooded(3), false);
+    t.checkExpect(world1.game.wholeBoardFlooded(), false);
+
+    FloodItWorld columnWorld = new FloodItWorld(3, 2, 2);
+    this.initColumnWorld(columnWorld);
+    t.checkExpect(columnWorld.game.board.isFlooded(3), true);
+    t.checkExpect(columnWorld.game.board.isFlooded(8), true);
+    t.checkExpect(columnWorld.game.board.isFlooded(2), true);
+    t.checkExpect(columnWorld.game.board.isFlooded(4), false);
+  }
 
-    t.checkExpect(world4.board,
-        new ArrayList<ArrayList<Cell>>(
-            Arrays.asList(new ArrayList<Cell>(Arrays.asList(firstCell, secondCell)),
+  // tests the method recolorRing
+  void testRecolorRing(Tester t) {
+    this.initTestExamples();
 
-                new ArrayList<Cell>(Arrays.asList(thirdCell, fourthCell)))));
+    world1.game.floodColor = 3;
+    t.checkExpect(world1.recolorRing(1), 0);
+    world1.game.board.flood(1);
+    world1.game.board.flood(4);
+    world1.game.board.flood(5);
+    t.checkExpect(world1.recolorRing(1), 2);
+    t.checkExpect(world1.game.board.color(1), 3);
+    t.checkExpect(world1.game.board.color(4), 3);
+    t.checkExpect(world1.game.board.color(3), 1);
+    t.checkExpect(world1.recolorRing(1), 0);
+    t.checkExpect(world1.recolorRing(2), 1);
+    t.checkExpect(world1.game.board.color(5), 3);
+    t.checkExpect(world1.recolorRing(0), 1);
+    t.checkExpect(world1.renderer.dirty.size, 4);
   }
 
-  // tests the method initNeighbors
-  void testInitNeighbors(Tester t) {
+  // tests the method recolor
+  void testRecolor(Tester t) {
     this.initTestExamples();
 
-    t.checkExpect(world1.board.get(0).get(0).left, null);
-    t.checkExpect(world1.board.get(0).get(0).top, null);
-    t.checkExpect(world1.board.get(0).get(0).right, world1.board.get(0).get(1));
-    t.checkExpect(world1.board.get(0).get(0).bottom, world1.board.get(1).get(0));
-
-    t.checkExpect(world2.board.get(1).get(2).left, world2.board.get(1).get(1));
-    t.checkExpect(world2.board.get(1).get(2).top, world2.board.get(0).get(2));
-    t.checkExpect(world2.board.get(1).get(2).right, null);
-    t.checkExpect(world2.board.get(1).get(2).bottom, world2.board.get(2).get(2));
-
-    t.checkExpect(world3.board.get(1).get(0).left, null);
-    t.checkExpect(world3.board.get(1).get(0).top, world3.board.get(0).get(0));
-    t.checkExpect(world3.board.get(1).get(0).right, world3.board.get(1).get(1));
-    t.checkExpect(world3.board.get(1).get(0).bottom, null);
-
-    t.checkExpect(world4.board.get(1).get(1).left, world3.board.get(1).get(0));
-    t.checkExpect(world4.board.get(1).get(1).top, world3.board.get(0).get(1));
-    t.checkExpect(world4.board.get(1).get(1).right, null);
-    t.checkExpect(world4.board.get(1).get(1).bottom, null);
-  }
-
-  // tests propogate order method
-  void testPropogateOrder(Tester t) {
-    this.initTestExamples();
-
-    FloodItWorld test1 = new FloodItWorld(2, 5, 2);
-    test1.initBoard();
-    ArrayList<ArrayList<Cell>> outputTest1 = new ArrayList<ArrayList<Cell>>();
-    ArrayList<Cell> wave1 = new ArrayList<Cell>(Arrays.asList(test1.board.get(0).get(0)));
-    outputTest1.add(wave1);
-
-    ArrayList<Cell> wave2 = new ArrayList<Cell>(Arrays.asList(test1.board.get(1).get(0),
-        test1.board.get(0).get(1), test1.board.get(1).get(1)));
-    outputTest1.add(wave2);
-    t.checkExpect(test1.propogateOrder(), outputTest1);
-    FloodItWorld test2 = new FloodItWorld(3, 5, 2);
-    test2.initBoard();
-
-    ArrayList<ArrayList<Cell>> outputTest2 = new ArrayList<ArrayList<Cell>>();
-    ArrayList<Cell> wave3 = new ArrayList<Cell>(Arrays.asList(test2.board.get(0).get(0)));
-    outputTest2.add(wave3);
-    ArrayList<Cell> wave4 = new ArrayList<Cell>(Arrays.asList(test2.board.get(1).get(0),
-        test2.board.get(0).get(1), test2.board.get(1).get(1)));
-    outputTest2.add(wave4);
-    ArrayList<Cell> wave5 = new ArrayList<Cell>(
-        Arrays.asList(test2.board.get(2).get(0), test2.board.get(0).get(2),
-            test2.board.get(2).get(1), test2.board.get(1).get(2), test2.board.get(2).get(2)));
-    outputTest2.add(wave5);
-    t.checkExpect(test2.propogateOrder(), outputTest2);
-
-    FloodItWorld test3 = new FloodItWorld(4, 5, 2);
-    test3.initBoard();
-    ArrayList<ArrayList<Cell>> outputTest3 = new ArrayList<ArrayList<Cell>>();
-    ArrayList<Cell> wave6 = new ArrayList<Cell>(Arrays.asList(test3.board.get(0).get(0)));
-    outputTest3.add(wave6);
-    ArrayList<Cell> wave7 = new ArrayList<Cell>(Arrays.asList(test3.board.get(1).get(0),
-        test3.board.get(0).get(1), test3.board.get(1).get(1)));
-    outputTest3.add(wave7);
-    ArrayList<Cell> wave8 = new ArrayList<Cell>(
-        Arrays.asList(test3.board.get(2).get(0), test3.board.get(0).get(2),
-            test3.board.get(2).get(1), test3.board.get(1).get(2), test3.board.get(2).get(2)));
-    outputTest3.add(wave8);
-    ArrayList<Cell> wave9 = new ArrayList<Cell>(Arrays.asList(test3.board.get(3).get(0),
-        test3.board.get(0).get(3), test3.board.get(3).get(1), test3.board.get(1).get(3),
-        test3.board.get(3).get(2), test3.board.get(2).get(3), test3.board.get(3).get(3)));
-    outputTest3.add(wave9);
-    t.checkExpect(test3.propogateOrder(), outputTest3);
+    world3.game.floodColor = 2;
+    t.checkExpect(world3.recolor(1), false);
+    t.checkExpect(world3.recolor(0), true);
+    t.checkExpect(world3.game.board.color(0), 2);
+    t.checkExpect(world3.recolor(0), false);
+    world3.game.board.flood(3);
+    t.checkExpect(world3.recolor(3), false);
   }
 
   // to test the method wholeBoardFlooded
   void testWholeBoardFlooded(Tester t) {
     this.initTestExamples();
 
-    t.checkExpect(world1.wholeBoardFlooded(), false);
-    t.checkExpect(world2.wholeBoardFlooded(), false);
-    t.checkExpect(world3.wholeBoardFlooded(), false);
-    t.checkExpect(world4.wholeBoardFlooded(), false);
+    t.checkExpect(world1.game.wholeBoardFlooded(), false);
+    t.checkExpect(world2.game.wholeBoardFlooded(), false);
+    t.checkExpect(world3.game.wholeBoardFlooded(), false);
+    t.checkExpect(world4.game.wholeBoardFlooded(), false);
+
+    FloodItWorld world5 = new FloodItWorld(3, 2, 2);
+    this.initColumnWorld(world5);
+    t.checkExpect(world5.game.wholeBoardFlooded(), false);
+    world5.game.engine.flood(1);
+    t.checkExpect(world5.game.wholeBoardFlooded(), true);
+
+    FloodItWorld world6 = new FloodItWorld(3, 7, 2);
+    world6.initBoard();
+    world6.game.board = board1;
+    world6.initNeighbors();
+    t.checkExpect(world6.game.wholeBoardFlooded(), true);
+  }
+
+  // to test the method percentFlooded
+  void testPercentFlooded(Tester t) {
+    this.initTestExamples();
 
-    firstCell.flooded();
-    firstCell.setRight(secondCell);
-    firstCell.setBottom(thirdCell);
-    secondCell.setLeft(firstCell);
-    secondCell.setBottom(fourthCell);
-    thirdCell.setTop(firstCell);
-    thirdCell.setRight(fourthCell);
-    fourthCell.setTop(secondCell);
-    fourthCell.setLeft(thirdCell);
+    t.checkExpect(world1.game.percentFlooded(), 11);
+    t.checkExpect(world3.game.percentFlooded(), 25);
+    world3.game.engine.flood(2);
+    t.checkExpect(world3.game.percentFlooded(), 75);
 
-    secondCell.flooded();
-    thirdCell.flooded();
-    fourthCell.flooded();
+    FloodItWorld columnWorld = new FloodItWorld(3, 2, 2);
+    this.initColumnWorld(columnWorld);
+    t.checkExpect(columnWorld.game.percentFlooded(), 77);
+    columnWorld.game.engine.flood(1);
+    t.checkExpect(columnWorld.game.percentFlooded(), 100);
+  }
 
-    FloodItWorld world5 = new FloodItWorld(2, 7, 2);
-    ArrayList<ArrayList<Cell>> boardList1 = new ArrayList<ArrayList<Cell>>(
-        Arrays.asList(new ArrayList<Cell>(Arrays.asList(firstCell, secondCell)),
-            new ArrayList<Cell>(Arrays.asList(thirdCell, fourthCell))));
+  // tests the method drawBoard
+  void testDrawBoard(Tester t) {
+    this.initTestExamples();
 
-    world5.board = boardList1;
+    t.checkExpect(this.world1.drawBoard(), this.world1.viewport.image);
+    t.checkExpect(this.world1.drawBoard(), new CropImage(0, 0, 75, 75, new ScaleImage(
+        new CropImage(0, 0, 3, 3, this.world1.renderer.pixels), this.world1.CELL_SIZE)));
+    WorldImage drawn = this.world3.drawBoard();
 
-    t.checkExpect(world5.wholeBoardFlooded(), true);
+    this.world3.game.board.setColor(3, 1);
+    this.world3.renderer.markDirty(3);
+    t.checkExpect(this.world3.drawBoard() == drawn, true);
+    t.checkExpect(this.world3.renderer.drawn, new byte[] { 1, 0, 2, 1 });
+  }
 
-    firstCell.flooded();
-    firstCell.setRight(thirdCell);
-    firstCell.setBottom(secondCell);
-    thirdCell.setLeft(firstCell);
-    thirdCell.setBottom(fourthCell);
-    secondCell.setTop(firstCell);
-    secondCell.setRight(fourthCell);
-    fourthCell.setTop(thirdCell);
-    fourthCell.setLeft(secondCell);
+  // test methods for the BoardRenderer class
+  // to test the constructor and the method paint
+  void testPaint(Tester t) {
+    this.initTestExamples();
 
-    secondCell.flooded();
-    thirdCell.flooded();
-    fourthCell.flooded();
+    t.checkExpect(world1.renderer.drawn, new byte[] { 0, 6, 4, 1, 2, 1, 5, 0, 6 });
+    t.checkExpect(world3.renderer.drawn, new byte[] { 1, 0, 2, 2 });
 
-    FloodItWorld world6 = new FloodItWorld(2, 7, 2);
-    ArrayList<ArrayList<Cell>> boardList2 = new ArrayList<ArrayList<Cell>>(
-        Arrays.asList(new ArrayList<Cell>(Arrays.asList(firstCell, thirdCell)),
-            new ArrayList<Cell>(Arrays.asList(secondCell, fourthCell))));
+    world3.game.board.setColor(1, 2);
+    world3.renderer.paint(1);
+    t.checkExpect(world3.renderer.drawn, new byte[] { 1, 2, 2, 2 });
+  }
 
-    world6.board = boardList2;
+  // to test the methods markDirty and render
+  void testRender(Tester t) {
+    this.initTestExamples();
 
-    t.checkExpect(world6.wholeBoardFlooded(), true);
+    world1.game.board.setColor(4, 3);
+    world1.game.board.setColor(8, 3);
+    t.checkExpect(world1.renderer.render() == world1.renderer.pixels, true);
+    t.checkExpect(world1.renderer.drawn, new byte[] { 0, 6, 4, 1, 2, 1, 5, 0, 6 });
+
+    world1.renderer.markDirty(4);
+    world1.renderer.markDirty(0);
+    t.checkExpect(world1.renderer.dirty.size, 2);
+    world1.renderer.render();
+    t.checkExpect(world1.renderer.dirty.size, 0);
+    t.checkExpect(world1.renderer.drawn, new byte[] { 0, 6, 4, 1, 3, 1, 5, 0, 6 });
   }
 
-  // tests the method drawBoard
-  void testDrawBoard(Tester t) {
+  // to test the method markAll
+  void testMarkAll(Tester t) {
     this.initTestExamples();
 
-    t.checkExpect(this.world1.drawBoard(), new AboveImage(
-        new AboveImage(new AboveImage(new EmptyImage(),
-
-            new BesideImage(
-                new BesideImage(
-                    new BesideImage(new EmptyImage(),
-                        new RectangleImage(25, 25, OutlineMode.SOLID, new Color(187, 75, 230))),
-                    new RectangleImage(25, 25, OutlineMode.SOLID, new Color(243, 141, 7))),
-                new RectangleImage(25, 25, OutlineMode.SOLID, new Color(58, 133, 19)))),
-
-            new BesideImage(
-                new BesideImage(
-                    new BesideImage(new EmptyImage(),
-                        new RectangleImage(25, 25, OutlineMode.SOLID, new Color(1, 127, 218))),
-                    new RectangleImage(25, 25, OutlineMode.SOLID, new Color(252, 8, 219))),
-                new RectangleImage(25, 25, OutlineMode.SOLID, new Color(1, 127, 218)))),
-
-        new BesideImage(
-            new BesideImage(
-                new BesideImage(new EmptyImage(),
-                    new RectangleImage(25, 25, OutlineMode.SOLID, new Color(215, 190, 63))),
-                new RectangleImage(25, 25, OutlineMode.SOLID, new Color(187, 75, 230))),
-            new RectangleImage(25, 25, OutlineMode.SOLID, new Color(243, 141, 7)))));
-
-    t.checkExpect(this.world2.drawBoard(), new AboveImage(
-        new AboveImage(new AboveImage(new EmptyImage(),
-
-            new BesideImage(
-                new BesideImage(
-                    new BesideImage(new EmptyImage(),
-                        new RectangleImage(25, 25, OutlineMode.SOLID, new Color(187, 75, 230))),
-                    new RectangleImage(25, 25, OutlineMode.SOLID, new Color(243, 141, 7))),
-                new RectangleImage(25, 25, OutlineMode.SOLID, new Color(58, 133, 19)))),
-
-            new BesideImage(
-                new BesideImage(
-                    new BesideImage(new EmptyImage(),
-                        new RectangleImage(25, 25, OutlineMode.SOLID, new Color(1, 127, 218))),
-                    new RectangleImage(25, 25, OutlineMode.SOLID, new Color(252, 8, 219))),
-                new RectangleImage(25, 25, OutlineMode.SOLID, new Color(1, 127, 218)))),
-
-        new BesideImage(
-            new BesideImage(
-                new BesideImage(new EmptyImage(),
-                    new RectangleImage(25, 25, OutlineMode.SOLID, new Color(215, 190, 63))),
-                new RectangleImage(25, 25, OutlineMode.SOLID, new Color(187, 75, 230))),
-            new RectangleImage(25, 25, OutlineMode.SOLID, new Color(243, 141, 7)))));
-
-    t.checkExpect(this.world3.drawBoard(),
-        new AboveImage(
-            new AboveImage(new EmptyImage(),
-                new BesideImage(
-                    new BesideImage(new EmptyImage(),
-                        new RectangleImage(25, 25, OutlineMode.SOLID, new Color(207, 235, 55))),
-                    new RectangleImage(25, 25, OutlineMode.SOLID, new Color(187, 232, 235)))),
-            new BesideImage(
-                new BesideImage(new EmptyImage(),
-                    new RectangleImage(25, 25, OutlineMode.SOLID, new Color(173, 72, 20))),
-                new RectangleImage(25, 25, OutlineMode.SOLID, new Color(173, 72, 20)))));
+    world1.game.board.setColor(4, 3);
+    world1.renderer.render();
+    t.checkExpect(world1.renderer.drawn[4], (byte) 2);
+    world1.renderer.markAll();
+    t.checkExpect(world1.renderer.allDirty, true);
+    world1.renderer.render();
+    t.checkExpect(world1.renderer.drawn[4], (byte) 3);
+    t.checkExpect(world1.renderer.allDirty, false);
+  }
+
+  // test methods for the Viewport class
+  // to test the constructor and the method update
+  void testViewport(Tester t) {
+    Viewport small = new Viewport(3, 250, 250, 300, 25);
+    t.checkExpect(small.fitScale, 25.0);
+    t.checkExpect(small.offsetX, 212.5);
+    t.checkExpect(small.offsetY, 212.5);
+    t.checkExpect(small.firstColumn, 0);
+    t.checkExpect(small.endColumn, 3);
+    t.checkExpect(small.endRow, 3);
+    t.checkExpect(new Viewport(20, 250, 250, 300, 25).fitScale, 15.0);
+
+    Viewport big = new Viewport(1000, 250, 250, 300, 25);
+    t.checkInexact(big.fitScale, 0.3, 0.0001);
+    t.checkInexact(big.offsetX, 100.0, 0.0001);
+    t.checkExpect(big.firstColumn, 0);
+    t.checkExpect(big.endColumn, 1000);
+
+    big.zoom = 8;
+    big.update();
+    t.checkInexact(big.scale, 2.4, 0.0001);
+    t.checkInexact(big.offsetX, -950.0, 0.0001);
+    t.checkExpect(big.firstColumn, 437);
+    t.checkExpect(big.endColumn, 563);
+    t.checkExpect(big.firstRow, 437);
+    t.checkExpect(big.endRow, 563);
+    t.checkExpect(big.imageX(), 250);
+    t.checkExpect(big.imageY(), 250);
+  }
+
+  // to test the method clampFocus
+  void testClampFocus(Tester t) {
+    Viewport big = new Viewport(1000, 250, 250, 300, 25);
+    t.checkInexact(big.clampFocus(3), 500.0, 0.0001);
+    big.zoom = 8;
+    big.update();
+    t.checkInexact(big.clampFocus(3), 62.5, 0.0001);
+    t.checkInexact(big.clampFocus(2000), 937.5, 0.0001);
+    t.checkInexact(big.clampFocus(700), 700.0, 0.0001);
+  }
+
+  // to test the methods firstInView and endInView
+  void testInView(Tester t) {
+    Viewport big = new Viewport(1000, 250, 250, 300, 25);
+    big.zoom = 8;
+    big.update();
+    t.checkExpect(big.firstInView(250, -950), 437);
+    t.checkExpect(big.endInView(250, -950), 563);
+    t.checkExpect(big.firstInView(250, 100), 0);
+    t.checkExpect(big.endInView(250, 100), 125);
+    t.checkExpect(big.endInView(250, -2000), 1000);
+  }
+
+  // to test the method cellAt
+  void testCellAt(Tester t) {
+    Viewport small = new Viewport(3, 250, 250, 300, 25);
+    t.checkExpect(small.cellAt(213, 213), 0);
+    t.checkExpect(small.cellAt(275, 250), 5);
+    t.checkExpect(small.cellAt(287, 287), 8);
+    t.checkExpect(small.cellAt(212, 250), -1);
+    t.checkExpect(small.cellAt(250, 288), -1);
+    t.checkExpect(small.cellAt(-5, 600), -1);
+
+    Viewport big = new Viewport(1000, 250, 250, 300, 25);
+    t.checkExpect(big.cellAt(100, 100), 0);
+    t.checkExpect(big.cellAt(399, 399), 996996);
+    t.checkExpect(big.cellAt(99, 250), -1);
+    t.checkExpect(big.cellAt(250, 401), -1);
+    big.zoom = 8;
+    big.update();
+    t.checkExpect(big.cellAt(250, 250), 500500);
+    t.checkExpect(big.cellAt(50, 250), -1);
+  }
+
+  // to test the method positionOf
+  void testViewportPositionOf(Tester t) {
+    Viewport small = new Viewport(3, 250, 250, 300, 25);
+    t.checkExpect(small.positionOf(0), new Posn(225, 225));
+    t.checkExpect(small.positionOf(5), new Posn(275, 250));
+    t.checkExpect(small.cellAt(small.positionOf(7).x, small.positionOf(7).y), 7);
+  }
+
+  // to test the method zoomBy
+  void testZoomBy(Tester t) {
+    Viewport small = new Viewport(3, 250, 250, 300, 25);
+    small.zoomBy(5);
+    t.checkExpect(small.zoom, 4);
+    t.checkExpect(small.scale, 100.0);
+    t.checkExpect(small.firstColumn, 0);
+    t.checkExpect(small.endColumn, 3);
+    small.zoomBy(-1);
+    t.checkExpect(small.zoom, 2);
+    small.zoomBy(-5);
+    t.checkExpect(small.zoom, 1);
+    t.checkExpect(small.offsetX, 212.5);
+
+    Viewport big = new Viewport(1000, 250, 250, 300, 25);
+    big.zoomBy(3);
+    t.checkExpect(big.zoom, 8);
+    t.checkExpect(big.cellAt(250, 250), 500500);
+  }
+
+  // to test the method pan
+  void testPan(Tester t) {
+    Viewport big = new Viewport(1000, 250, 250, 300, 25);
+    big.pan(-10000, 0);
+    t.checkInexact(big.focusX, 500.0, 0.0001);
+
+    big.zoomBy(3);
+    big.pan(-10000, 0);
+    t.checkInexact(big.focusX, 62.5, 0.0001);
+    t.checkInexact(big.focusY, 500.0, 0.0001);
+    t.checkExpect(big.firstColumn, 0);
+    t.checkExpect(big.endColumn, 125);
+    t.checkExpect(big.cellAt(100, 250), 500000);
+    big.pan(0, 24);
+    t.checkInexact(big.focusY, 510.0, 0.0001);
+
+    big.zoomBy(-3);
+    t.checkInexact(big.focusX, 500.0, 0.0001);
+  }
+
+  // to test the method show
+  void testShow(Tester t) {
+    Viewport big = new Viewport(1000, 250, 250, 300, 25);
+    big.show(1001);
+    t.checkExpect(big.zoom, 8);
+    t.checkInexact(big.focusX, 62.5, 0.0001);
+    t.checkExpect(big.positionOf(1001), new Posn(103, 103));
+    t.checkExpect(big.cellAt(103, 103), 1001);
+
+    Viewport small = new Viewport(3, 250, 250, 300, 25);
+    small.show(8);
+    t.checkExpect(small.zoom, 1);
+    t.checkExpect(small.offsetX, 212.5);
+  }
+
+  // to test the method visible
+  void testVisible(Tester t) {
+    WorldImage pixels = new ComputedPixelImage(1000, 1000);
+    Viewport big = new Viewport(1000, 250, 250, 300, 25);
+    big.zoomBy(3);
+    WorldImage image = big.visible(pixels);
+    t.checkExpect(image, new CropImage(1, 1, 300, 300, new ScaleImage(new CropImage(437,
+        437, 126, 126, pixels), 2.4)));
+    t.checkExpect(big.visible(pixels) == image, true);
+    t.checkExpect(big.visible(new ComputedPixelImage(1000, 1000)) == image, false);
+    big.pan(100, 0);
+    t.checkExpect(big.visible(pixels) == image, false);
+
+    // cells partly in view are cut off at the edges of the view, which the board
+    // never gets drawn past
+    Viewport zoomed = new Viewport(12, 250, 250, 300, 25);
+    zoomed.zoomBy(3);
+    zoomed.pan(75, 75);
+    t.checkExpect(zoomed.visible(pixels), new CropImage(25, 25, 300, 300, new ScaleImage(
+        new CropImage(5, 5, 4, 4, pixels), 100)));
+    t.checkExpect(zoomed.drawnLeft, 100);
+    t.checkExpect(zoomed.drawnRight, 400);
+    t.checkExpect(zoomed.drawnTop, 100);
+    t.checkExpect(zoomed.drawnBottom, 400);
+    t.checkExpect(zoomed.imageX(), 250);
+    t.checkExpect(zoomed.imageY(), 250);
+    t.checkExpect(zoomed.cellAt(101, 101), 5 * 12 + 5);
+    t.checkExpect(zoomed.cellAt(399, 399), 8 * 12 + 8);
+
+    // a board smaller than the view is drawn whole in its middle
+    Viewport small = new Viewport(3, 250, 250, 300, 25);
+    t.checkExpect(small.visible(pixels), new CropImage(0, 0, 75, 75, new ScaleImage(
+        new CropImage(0, 0, 3, 3, pixels), 25.0)));
+    t.checkExpect(small.drawnLeft, 213);
+    t.checkExpect(small.drawnRight, 288);
+    t.checkExpect(small.imageX(), 250);
   }
 
   // tests the method makeScene
@@ -789,16 +6723,40 @@ class ExamplesFloodIts {
     this.world1.gameBoard.placeImageXY(new TextImage("Flood It", 30, Color.black), 250, 40);
     this.world1.gameBoard.placeImageXY(new RectangleImage(100, 100, OutlineMode.SOLID, Color.white),
         250, 450);
-    this.world1.gameBoard.placeImageXY(new TextImage(0 + "/" + 20, 30, Color.black), 250, 450);
+    this.world1.gameBoard.placeImageXY(new TextImage(0 + "/" + 10, 30, Color.black), 250, 450);
+    this.world1.gameBoard.placeImageXY(
+        new TextImage("11% flooded, 6 colors left", 13, Color.black), 250, 485);
     this.world1.gameBoard.placeImageXY(world1.drawBoard(), 250, 250);
     t.checkExpect(world2.makeScene(), world1.gameBoard);
 
     this.world3.gameBoard.placeImageXY(new TextImage("Flood It", 30, Color.black), 250, 40);
     this.world3.gameBoard.placeImageXY(new RectangleImage(100, 100, OutlineMode.SOLID, Color.white),
         250, 450);
-    this.world3.gameBoard.placeImageXY(new TextImage(0 + "/" + 11, 30, Color.black), 250, 450);
+    this.world3.gameBoard.placeImageXY(new TextImage(0 + "/" + 5, 30, Color.black), 250, 450);
+    this.world3.gameBoard.placeImageXY(
+        new TextImage("25% flooded, 2 colors left", 13, Color.black), 250, 485);
     this.world3.gameBoard.placeImageXY(world3.drawBoard(), 250, 250);
     t.checkExpect(world4.makeScene(), world3.gameBoard);
+
+    // drawing again doesn't add anything to the scene
+    t.checkExpect(world4.makeScene(), world3.gameBoard);
+
+    world2.endScreen("You Win");
+    WorldScene endScene = new WorldScene(500, 500);
+    endScene.placeImageXY(new TextImage("You Win", 30, Color.black), 250, 70);
+    endScene.placeImageXY(new TextImage("Flood It", 30, Color.black), 250, 40);
+    endScene.placeImageXY(new RectangleImage(100, 100, OutlineMode.SOLID, Color.white), 250, 450);
+    endScene.placeImageXY(new TextImage(0 + "/" + 10, 30, Color.black), 250, 450);
+    endScene.placeImageXY(new TextImage("11% flooded, 6 colors left", 13, Color.black), 250,
+        485);
+    endScene.placeImageXY(world2.drawBoard(), 250, 250);
+    t.checkExpect(world2.makeScene(), endScene);
+  }
+
+
+  // returns the color drawn for the cell of the given world at the given position
+  Color pressedColor(FloodItWorld world, Posn pos) {
+    return world.palette.color(world.game.board.color(world.pressedCell(pos)));
   }
 
   // tests pressed cell method
@@ -806,84 +6764,249 @@ class ExamplesFloodIts {
     this.initTestExamples();
 
     FloodItWorld testWorld = new FloodItWorld(2, 7, 2);
-    Cell firstCell = new Cell(new Color(215, 190, 63));
-    firstCell.flooded = true;
-    testWorld.initBoard();
+    this.initWorld(testWorld, 5, 2, 5, 0);
 
     FloodItWorld testWorld2 = new FloodItWorld(3, 7, 2);
-    testWorld2.initBoard();
-    Cell firstCell2 = new Cell(new Color(215, 190, 63));
-    firstCell2.flooded = true;
-    t.checkExpect(testWorld.pressedCell(new Posn(236, 240)), firstCell);
-    t.checkExpect(testWorld.pressedCell(new Posn(237, 266)), new Cell(new Color(215, 190, 63)));
-    t.checkExpect(testWorld.pressedCell(new Posn(265, 262)), new Cell(new Color(187, 75, 230)));
-    t.checkExpect(testWorld.pressedCell(new Posn(266, 233)), new Cell(new Color(252, 8, 219)));
-    t.checkExpect(testWorld2.pressedCell(new Posn(225, 225)), firstCell2);
-    t.checkExpect(testWorld2.pressedCell(new Posn(275, 252)), new Cell(new Color(252, 8, 219)));
-    t.checkExpect(testWorld2.pressedCell(new Posn(252, 275)), new Cell(new Color(187, 75, 230)));
-
+    this.initWorld(testWorld2, 5, 2, 5, 0, 0, 2, 4, 0, 5);
+    t.checkExpect(testWorld.pressedCell(new Posn(236, 240)), 0);
+    t.checkExpect(testWorld.pressedCell(new Posn(237, 266)), 2);
+    t.checkExpect(testWorld.pressedCell(new Posn(265, 262)), 3);
+    t.checkExpect(testWorld.pressedCell(new Posn(266, 233)), 1);
+    t.checkExpect(testWorld2.pressedCell(new Posn(225, 225)), 0);
+    t.checkExpect(testWorld2.pressedCell(new Posn(275, 252)), 5);
+    t.checkExpect(testWorld2.pressedCell(new Posn(252, 275)), 7);
+
+    t.checkExpect(this.pressedColor(testWorld, new Posn(236, 240)), Palette.DISTINCT[5]);
+    t.checkExpect(this.pressedColor(testWorld, new Posn(237, 266)), Palette.DISTINCT[5]);
+    t.checkExpect(this.pressedColor(testWorld, new Posn(265, 262)), Palette.DISTINCT[0]);
+    t.checkExpect(this.pressedColor(testWorld, new Posn(266, 233)), Palette.DISTINCT[2]);
+    t.checkExpect(this.pressedColor(testWorld2, new Posn(225, 225)), Palette.DISTINCT[5]);
+    t.checkExpect(this.pressedColor(testWorld2, new Posn(275, 252)), Palette.DISTINCT[2]);
+    t.checkExpect(this.pressedColor(testWorld2, new Posn(252, 275)), Palette.DISTINCT[0]);
+
+    t.checkExpect(testWorld.pressedCell(new Posn(224, 240)), -1);
+    t.checkExpect(testWorld2.pressedCell(new Posn(252, 300)), -1);
+    t.checkExpect(testWorld2.pressedCell(new Posn(0, 0)), -1);
   }
 
-  // tests the onTick method
-  void testOnTick(Tester t) {
+  // tests the step and waterfallRing methods
+  void testStep(Tester t) {
     this.initTestExamples();
 
     FloodItWorld test1 = new FloodItWorld(3, 3, 5);
-    test1.initBoard();
-    test1.initColors();
-    test1.initNeighbors();
-    ArrayList<ArrayList<Cell>> boardGrab = test1.board;
-    test1.propogateOrder = test1.propogateOrder();
+    this.initWorld(test1, 0, 2, 0, 1, 0, 2, 1, 0, 1);
+    Board boardGrab = test1.game.board;
     test1.currentlyWaterfalling = true;
-    test1.floodColor = new Color(200, 0, 0);
-    test1.maxClicksAllowed = 3;
-    t.checkExpect(test1.board.get(0).get(0).color, new Color(187, 45, 22));
-    t.checkExpect(test1.board.get(1).get(1).color, new Color(187, 45, 22));
-    t.checkExpect(test1.board.get(2).get(2).color, new Color(156, 125, 241));
-    test1.onTick();
-    t.checkExpect(test1.board, boardGrab);
+    test1.game.floodColor = 5;
+    test1.game.maxClicksAllowed = 3;
+    t.checkExpect(test1.game.board.color(0), 0);
+    t.checkExpect(test1.game.board.color(4), 0);
+    t.checkExpect(test1.game.board.color(8), 1);
+    test1.step();
+    t.checkExpect(test1.game.board, boardGrab);
+    t.checkExpect(test1.renderer.dirty.size, 1);
     t.checkExpect(test1.propogateIndex, 1);
     t.checkExpect(test1.currentlyWaterfalling, true);
-    t.checkExpect(test1.floodColor, new Color(200, 0, 0));
-    t.checkExpect(test1.board.get(1).get(1).color, new Color(187, 45, 22));
-    t.checkExpect(test1.board.get(2).get(2).color, new Color(156, 125, 241));
-    test1.board.get(1).get(1).flooded();
-    test1.board.get(2).get(2).flooded();
-    test1.onTick();
+    t.checkExpect(test1.game.floodColor, 5);
+    t.checkExpect(test1.game.board.color(0), 5);
+    t.checkExpect(test1.game.board.color(4), 0);
+    t.checkExpect(test1.game.board.color(8), 1);
+    test1.game.board.flood(4);
+    test1.game.board.flood(8);
+    test1.step();
     t.checkExpect(test1.propogateIndex, 2);
-    t.checkExpect(test1.board.get(1).get(1).color, new Color(200, 0, 0));
-    t.checkExpect(test1.board.get(2).get(2).color, new Color(156, 125, 241));
-    test1.userClicksCount = 3;
-    test1.currentlyWaterfalling = true;
+    t.checkExpect(test1.game.board.color(4), 5);
+    t.checkExpect(test1.game.board.color(8), 1);
+    test1.step();
+    t.checkExpect(test1.propogateIndex, 0);
+    t.checkExpect(test1.currentlyWaterfalling, false);
+    t.checkExpect(test1.game.board.color(8), 5);
+
+    // the waterfall stops at the first ring with nothing left to recolor
+    world1.onMouseClicked(new Posn(250, 250));
+    world1.step();
+    t.checkExpect(world1.propogateIndex, 1);
+    t.checkExpect(world1.game.board.color(0), 2);
+    world1.step();
+    t.checkExpect(world1.propogateIndex, 0);
+    t.checkExpect(world1.currentlyWaterfalling, false);
 
     FloodItWorld test2 = new FloodItWorld(6, 5, 8);
-    test2.initBoard();
-    test2.initColors();
-    test2.initNeighbors();
-    ArrayList<ArrayList<Cell>> boardGrab2 = test2.board;
-    test2.propogateOrder = test2.propogateOrder();
+    this.initWorld(test2, 3, 2, 4, 3, 0, 3, 1, 3, 0, 4, 2, 0, 0, 4, 4, 2, 1, 1, 3, 3, 3, 4, 1, 3,
+        2, 2, 1, 3, 3, 4, 0, 0, 2, 2, 1, 3);
+    Board boardGrab2 = test2.game.board;
     test2.currentlyWaterfalling = true;
-    test2.floodColor = new Color(200, 0, 0);
-    test2.maxClicksAllowed = 3;
-    t.checkExpect(test2.board.get(0).get(0).color, new Color(55, 183, 115));
-    t.checkExpect(test2.board.get(1).get(1).color, new Color(55, 183, 115));
-    t.checkExpect(test2.board.get(2).get(2).color, new Color(3, 252, 160));
-
-    test1.onTick();
-    t.checkExpect(test2.board, boardGrab2);
-    t.checkExpect(test2.propogateIndex, 0);
-    t.checkExpect(test2.currentlyWaterfalling, true);
-    t.checkExpect(test2.floodColor, new Color(200, 0, 0));
-    t.checkExpect(test2.board.get(1).get(1).color, new Color(55, 183, 115));
-    t.checkExpect(test2.board.get(2).get(2).color, new Color(3, 252, 160));
-    test2.board.get(1).get(1).flooded();
-    test2.board.get(2).get(2).flooded();
-    test2.onTick();
+    test2.game.floodColor = 9;
+    test2.game.maxClicksAllowed = 3;
+    t.checkExpect(test2.game.board.color(0), 3);
+    t.checkExpect(test2.game.board.color(7), 3);
+    t.checkExpect(test2.game.board.color(14), 4);
+
+    test2.step();
+    t.checkExpect(test2.game.board, boardGrab2);
     t.checkExpect(test2.propogateIndex, 1);
-    t.checkExpect(test2.board.get(1).get(1).color, new Color(55, 183, 115));
-    t.checkExpect(test2.board.get(2).get(2).color, new Color(3, 252, 160));
-    test2.userClicksCount = 3;
-    test2.currentlyWaterfalling = true;
+    t.checkExpect(test2.currentlyWaterfalling, true);
+    t.checkExpect(test2.game.floodColor, 9);
+    t.checkExpect(test2.game.board.color(7), 3);
+    t.checkExpect(test2.game.board.color(14), 4);
+    test2.game.board.flood(7);
+    test2.game.board.flood(14);
+    test2.step();
+    t.checkExpect(test2.propogateIndex, 2);
+    t.checkExpect(test2.game.board.color(7), 9);
+    t.checkExpect(test2.game.board.color(14), 4);
+
+    // a board with more rings than a waterfall has steps waterfalls a few at a time
+    FloodItWorld big = new FloodItWorld(70, 1, 3);
+    big.initBoard();
+    big.initNeighbors();
+    big.game.floodColor = 2;
+    big.currentlyWaterfalling = true;
+    big.step();
+    t.checkExpect(big.propogateIndex, 3);
+  }
+
+  // tests the onTick method
+  void testOnTick(Tester t) {
+    this.initTestExamples();
+
+    long[] now = { 0 };
+    world1.clock = new StepClock(() -> now[0], 10, 3);
+    world1.onMouseClicked(new Posn(250, 250));
+    world1.onTick();
+    t.checkExpect(world1.propogateIndex, 0);
+    t.checkExpect(world1.currentlyWaterfalling, true);
+
+    // drawing doesn't move the waterfall, only time does
+    world1.makeScene();
+    t.checkExpect(world1.currentlyWaterfalling, true);
+    now[0] = 15;
+    world1.onTick();
+    t.checkExpect(world1.propogateIndex, 1);
+    now[0] = 20;
+    world1.onTick();
+    t.checkExpect(world1.currentlyWaterfalling, false);
+  }
+
+  // tests the queueMove method
+  void testQueueMove(Tester t) {
+    this.initTestExamples();
+
+    world1.queueMove(0);
+    t.checkExpect(world1.queuedMoves.size, 0);
+    world1.queueMove(2);
+    world1.queueMove(2);
+    t.checkExpect(world1.queuedMoves.size, 1);
+    world1.queueMove(0);
+    t.checkExpect(world1.queuedMoves.size, 2);
+    t.checkExpect(world1.queuedMoves.get(1), 0);
+
+    // nothing is queued once the game is over
+    world1.endMessage = "You Lose";
+    world1.queueMove(3);
+    t.checkExpect(world1.queuedMoves.size, 2);
+
+    // clicks during a waterfall are queued rather than played
+    world3.onMouseClicked(new Posn(250, 250));
+    t.checkExpect(world3.game.userClicksCount, 1);
+    world3.onMouseClicked(new Posn(250, 230));
+    t.checkExpect(world3.game.userClicksCount, 1);
+    t.checkExpect(world3.queuedMoves.size, 1);
+    world3.step();
+    t.checkExpect(world3.game.userClicksCount, 2);
+    t.checkExpect(world3.queuedMoves.size, 0);
+  }
+
+  // tests the playBatch method
+  void testPlayBatch(Tester t) {
+    this.initTestExamples();
+
+    // going to 1 and back to 0 leaves the first cell with the flood color but not the
+    // cell below it, so the waterfall can't stop at the first ring
+    world1.hintColor = 4;
+    world1.playBatch(new int[] { 1, 0, 3 }, 2);
+    t.checkExpect(world1.game.userClicksCount, 2);
+    t.checkExpect(world1.currentlyWaterfalling, true);
+    t.checkExpect(world1.waterfallToEdge, true);
+    t.checkExpect(world1.hintColor, -1);
+    world1.step();
+    t.checkExpect(world1.currentlyWaterfalling, true);
+    t.checkExpect(world1.propogateIndex, 1);
+    world1.step();
+    t.checkExpect(world1.game.board.color(3), 0);
+    world1.finishWaterfall();
+    t.checkExpect(world1.waterfallToEdge, false);
+
+    // a batch of one move waterfalls as usual
+    world1.playBatch(new int[] { 1 }, 1);
+    t.checkExpect(world1.waterfallToEdge, false);
+
+    // a batch with nothing to play doesn't start a waterfall
+    world1.finishWaterfall();
+    world1.playBatch(new int[] { 1 }, 1);
+    t.checkExpect(world1.currentlyWaterfalling, false);
+
+    // a batch stops at the move limit, once the skipped waterfall has ended the game
+    world2.game.maxClicksAllowed = 2;
+    world2.playBatch(new int[] { 1, 0, 3 }, 3);
+    t.checkExpect(world2.game.userClicksCount, 2);
+    world2.playBatch(new int[] { 3 }, 1);
+    t.checkExpect(world2.endMessage, "You Lose");
+    t.checkExpect(world2.game.userClicksCount, 2);
+    t.checkExpect(world2.currentlyWaterfalling, false);
+  }
+
+  // tests the ringsPerStep method
+  void testRingsPerStep(Tester t) {
+    this.initTestExamples();
+
+    t.checkExpect(world1.ringsPerStep(), 1);
+    t.checkExpect(new FloodItWorld(30, 3, 1).ringsPerStep(), 1);
+    t.checkExpect(new FloodItWorld(31, 3, 1).ringsPerStep(), 2);
+    t.checkExpect(new FloodItWorld(400, 3, 1).ringsPerStep(), 14);
+  }
+
+  // tests the finishWaterfall method, and clicking in the middle of a waterfall
+  void testFinishWaterfall(Tester t) {
+    this.initTestExamples();
+
+    world1.finishWaterfall();
+    t.checkExpect(world1.currentlyWaterfalling, false);
+
+    FloodItWorld big = new FloodItWorld(40, 3, 6);
+    big.initBoard();
+    big.initNeighbors();
+    big.game.maxClicksAllowed = 100;
+    FloodItBenchmark benchmark = new FloodItBenchmark(40, 3, 1);
+    int next = (big.game.floodColor + 1) % 3;
+    big.onMouseClicked(benchmark.positionOf(big, benchmark.cellOfColor(big.game.board, next)));
+    t.checkExpect(big.currentlyWaterfalling, true);
+    big.finishWaterfall();
+    t.checkExpect(big.currentlyWaterfalling, false);
+    t.checkExpect(big.propogateIndex, 0);
+    t.checkExpect(big.game.board.color(0), next);
+
+    // a click in the middle of a waterfall is played on the next step, which finishes
+    // the waterfall first
+    int later = (next + 1) % 3;
+    big.onMouseClicked(benchmark.positionOf(big, benchmark.cellOfColor(big.game.board, later)));
+    t.checkExpect(big.currentlyWaterfalling, true);
+    int last = (later + 1) % 3;
+    big.onMouseClicked(benchmark.positionOf(big, benchmark.cellOfColor(big.game.board, last)));
+    t.checkExpect(big.game.userClicksCount, 2);
+    t.checkExpect(big.queuedMoves.size, 1);
+    big.step();
+    t.checkExpect(big.game.userClicksCount, 3);
+    t.checkExpect(big.game.floodColor, last);
+    t.checkExpect(big.currentlyWaterfalling, true);
+    boolean finished = true;
+    for (int cell = 0; cell < big.game.board.size(); cell++) {
+      int color = big.game.board.color(cell);
+      if (big.game.board.isFlooded(cell) && color != later && color != last) {
+        finished = false;
+      }
+    }
+    t.checkExpect(finished, true);
   }
 
   // to test the method endScreen
@@ -921,51 +7044,718 @@ class ExamplesFloodIts {
   void testOnKeyEvent(Tester t) {
     this.initTestExamples();
 
-    world1.userClicksCount = 5;
-    world2.userClicksCount = 0;
-    world3.userClicksCount = 7;
-    world4.userClicksCount = 8;
+    FloodItWorld big = new FloodItWorld(40, 3, 2);
+    big.onKeyEvent("+");
+    t.checkExpect(big.viewport.zoom, 2);
+    big.onKeyEvent("left");
+    t.checkInexact(big.viewport.focusX, 20 - 75 / 14.0, 0.0001);
+    big.onKeyEvent("down");
+    t.checkInexact(big.viewport.focusY, 20 + 75 / 14.0, 0.0001);
+    big.onKeyEvent("-");
+    t.checkExpect(big.viewport.zoom, 1);
+    t.checkInexact(big.viewport.focusX, 20.0, 0.0001);
+
+    world1.game.userClicksCount = 5;
+    world2.game.userClicksCount = 0;
+    world3.game.userClicksCount = 7;
+    world4.game.userClicksCount = 8;
 
     world1.onKeyEvent("h");
-    t.checkExpect(world1.userClicksCount, 5);
+    t.checkExpect(world1.game.userClicksCount, 5);
+    t.checkExpect(world1.hintColor, 1);
 
     world2.onKeyEvent("l");
-    t.checkExpect(world2.userClicksCount, 0);
+    t.checkExpect(world2.game.userClicksCount, 0);
 
     world3.onKeyEvent("r");
-    t.checkExpect(world3.userClicksCount, 0);
+    t.checkExpect(world3.game.userClicksCount, 0);
 
     world4.onKeyEvent("r");
-    t.checkExpect(world4.userClicksCount, 0);
+    t.checkExpect(world4.game.userClicksCount, 0);
+  }
+
+  // to test the methods measure, measuredScene and buildScene
+  void testMeasuredScene(Tester t) {
+    this.initTestExamples();
+
+    MetricsTotals totals = new MetricsTotals();
+    world1.measure(totals);
+    t.checkExpect(world1.game.metrics, totals);
+    t.checkExpect(world1.makeScene(), world2.makeScene());
+    t.checkExpect(totals.frames, 1);
+    t.checkExpect(totals.waterfallFrames, 0);
+    t.checkExpect(totals.frameNanos > 0, true);
+
+    world1.onMouseClicked(new Posn(225, 250));
+    t.checkExpect(totals.moves, 1);
+    world1.makeScene();
+    t.checkExpect(totals.frames, 2);
+    t.checkExpect(totals.waterfallFrames, 1);
+    t.checkExpect(world1.buildScene(), world1.makeScene());
+  }
+
+  // to test the methods initRenderer and restart
+  void testWorldRestart(Tester t) {
+    this.initTestExamples();
+
+    Board board = world1.game.board;
+    BoardRenderer renderer = world1.renderer;
+    Palette palette = world1.palette;
+    world1.onMouseClicked(new Posn(225, 250));
+    world1.onMouseClicked(new Posn(275, 225));
+    world1.hintColor = 2;
+    world1.endMessage = "You Lose";
+    world1.restart();
+    t.checkExpect(world1.game.userClicksCount, 0);
+    t.checkExpect(world1.queuedMoves.size, 0);
+    t.checkExpect(world1.currentlyWaterfalling, false);
+    t.checkExpect(world1.propogateIndex, 0);
+    t.checkExpect(world1.hintColor, -1);
+    t.checkExpect(world1.endMessage, null);
+
+    // the next board is drawn over the image of the last one, in the same palette
+    t.checkExpect(world1.game.board == board, true);
+    t.checkExpect(world1.renderer == renderer, true);
+    t.checkExpect(world1.palette == palette, true);
+    t.checkExpect(world1.renderer.allDirty, true);
+    world1.drawBoard();
+    t.checkExpect(world1.renderer.drawn, ((PackedBoard) board).colors);
+
+    // a board that isn't the one drawn gets an image of its own
+    world1.game.board = new PackedBoard(3, 7);
+    world1.initRenderer();
+    t.checkExpect(world1.renderer == renderer, false);
+    t.checkExpect(world1.renderer.board, world1.game.board);
+  }
+
+
+  // to test the method moved, and undoing and redoing through onKeyEvent
+  void testMoved(Tester t) {
+    this.initTestExamples();
+
+    world1.onMouseClicked(new Posn(225, 250));
+    t.checkExpect(world1.game.userClicksCount, 1);
+
+    // nothing is taken back in the middle of a waterfall
+    world1.onKeyEvent("u");
+    t.checkExpect(world1.game.userClicksCount, 1);
+    while (world1.currentlyWaterfalling) {
+      world1.step();
+    }
+    t.checkExpect(world1.game.board.color(0), 1);
+
+    world1.hintColor = 2;
+    world1.onKeyEvent("u");
+    t.checkExpect(world1.game.userClicksCount, 0);
+    t.checkExpect(world1.game.board.isFlooded(3), false);
+    t.checkExpect(world1.currentlyWaterfalling, true);
+    t.checkExpect(world1.renderer.allDirty, true);
+    t.checkExpect(world1.hintColor, -1);
+    while (world1.currentlyWaterfalling) {
+      world1.step();
+    }
+    t.checkExpect(world1.game.board.color(0), 0);
+    t.checkExpect(world1.game.board.color(3), 1);
+
+    world1.onKeyEvent("y");
+    t.checkExpect(world1.game.userClicksCount, 1);
+    t.checkExpect(world1.game.board.isFlooded(3), true);
+
+    // with nothing to redo nothing starts
+    while (world1.currentlyWaterfalling) {
+      world1.step();
+    }
+    world1.onKeyEvent("y");
+    t.checkExpect(world1.currentlyWaterfalling, false);
+
+    // taking a move back replays the ones before it, which leaves cells deep in the
+    // flooded region in the colors they started with, so the waterfall runs to the edge
+    FloodItWorld world = new FloodItWorld(4, 4, 2);
+    this.initWorld(world, 0, 2, 1, 2, 2, 2, 1, 3, 1, 1, 1, 3, 3, 3, 3, 3);
+    for (int color : new int[] { 2, 1, 2, 3 }) {
+      world.playBatch(new int[] { color }, 1);
+      world.finishWaterfall();
+    }
+    world.onKeyEvent("u");
+    t.checkExpect(world.waterfallToEdge, true);
+    world.finishWaterfall();
+    t.checkExpect(world.game.floodColor, 2);
+    t.checkExpect(world.waterfallToEdge, false);
+    for (int cell : new int[] { 0, 1, 2, 4, 5, 6, 8, 9, 10 }) {
+      t.checkExpect(world.game.board.color(cell), 2);
+    }
   }
 
   // to test the method onMouseClicked
   void testOnMouseClicked(Tester t) {
     this.initTestExamples();
 
-    world1.floodColor = new Color(1, 127, 218);
+    world1.game.floodColor = 1;
     world1.onMouseClicked(new Posn(250, 250));
-    t.checkExpect(world1.floodColor, new Color(252, 8, 219));
+    t.checkExpect(world1.game.floodColor, 2);
+    t.checkExpect(world1.game.userClicksCount, 1);
+    t.checkExpect(world1.currentlyWaterfalling, true);
 
-    world2.floodColor = new Color(1, 127, 218);
+    world2.game.floodColor = 1;
     world2.onMouseClicked(new Posn(215, 260));
-    t.checkExpect(world2.floodColor, new Color(1, 127, 218));
+    t.checkExpect(world2.game.floodColor, 1);
+    t.checkExpect(world2.game.userClicksCount, 0);
 
-    world3.floodColor = new Color(187, 232, 235);
+    world3.game.floodColor = 0;
     world3.onMouseClicked(new Posn(250, 250));
-    t.checkExpect(world3.floodColor, new Color(173, 72, 20));
+    t.checkExpect(world3.game.floodColor, 2);
+    t.checkExpect(world3.game.board.isFlooded(2), true);
+    t.checkExpect(world3.game.board.isFlooded(3), true);
+    t.checkExpect(world3.game.board.isFlooded(1), false);
 
-    world4.floodColor = new Color(173, 72, 20);
+    world4.game.floodColor = 2;
     world4.onMouseClicked(new Posn(250, 250));
-    t.checkExpect(world4.floodColor, new Color(173, 72, 20));
+    t.checkExpect(world4.game.floodColor, 2);
+    t.checkExpect(world4.game.board.isFlooded(3), false);
+
+    // a click on a cell the winning waterfall hasn't recolored yet is dropped
+    FloodItWorld columnWorld = new FloodItWorld(3, 2, 2);
+    this.initColumnWorld(columnWorld);
+    columnWorld.game.maxClicksAllowed = 1;
+    t.checkExpect(columnWorld.pressedCell(new Posn(250, 250)), 4);
+    columnWorld.onMouseClicked(new Posn(250, 250));
+    t.checkExpect(columnWorld.game.wholeBoardFlooded(), true);
+    t.checkExpect(columnWorld.currentlyWaterfalling, true);
+    t.checkExpect(columnWorld.gameOver(), true);
+    t.checkExpect(columnWorld.pressedCell(new Posn(275, 275)), 8);
+    t.checkExpect(columnWorld.game.board.color(8), 0);
+    columnWorld.onMouseClicked(new Posn(275, 275));
+    t.checkExpect(columnWorld.queuedMoves.size, 0);
+    columnWorld.step();
+    columnWorld.finishWaterfall();
+    t.checkExpect(columnWorld.endMessage, "You Win");
+    t.checkExpect(columnWorld.game.userClicksCount, 1);
+
+    // and so is any click once the game has ended
+    columnWorld.onMouseClicked(new Posn(275, 275));
+    t.checkExpect(columnWorld.currentlyWaterfalling, false);
+    t.checkExpect(columnWorld.game.userClicksCount, 1);
+
+    // a click during the waterfall of the last move allowed is dropped too, even when
+    // it wasn't the winning move
+    FloodItWorld lastWorld = new FloodItWorld(3, 7, 2);
+    this.initWorld(lastWorld, 0, 6, 4, 1, 2, 1, 5, 0, 6);
+    lastWorld.game.maxClicksAllowed = 1;
+    t.checkExpect(lastWorld.pressedCell(new Posn(250, 225)), 1);
+    lastWorld.onMouseClicked(new Posn(250, 225));
+    t.checkExpect(lastWorld.game.userClicksCount, 1);
+    t.checkExpect(lastWorld.game.wholeBoardFlooded(), false);
+    t.checkExpect(lastWorld.currentlyWaterfalling, true);
+    t.checkExpect(lastWorld.gameOver(), true);
+    lastWorld.onMouseClicked(new Posn(275, 275));
+    t.checkExpect(lastWorld.queuedMoves.size, 0);
+    lastWorld.step();
+    lastWorld.finishWaterfall();
+    t.checkExpect(lastWorld.endMessage, "You Lose");
+    t.checkExpect(lastWorld.game.userClicksCount, 1);
+    t.checkExpect(lastWorld.currentlyWaterfalling, false);
+  }
+
+  // test methods for the GameFile, GameRecord and GameReplay classes
+  // to test the methods create, append, close and read
+  void testGameFile(Tester t) throws IOException {
+    this.initTestExamples();
+
+    GameFile file = new GameFile(Files.createTempFile("flood-it", ".game"));
+    world1.game.record(file);
+    world1.game.play(1);
+    world1.game.play(2);
+    world1.game.stopRecording();
+    t.checkExpect(file.channel, null);
+
+    // a header, the palette, nine cells in five bytes and two moves
+    t.checkExpect(Files.size(file.path), 26L + 21 + 5 + 2);
+    GameRecord record = file.read();
+    t.checkExpect(record.sideLength, 3);
+    t.checkExpect(record.numColors, 7);
+    t.checkExpect(record.seed, 2L);
+    t.checkExpect(record.maxClicksAllowed, 10);
+    t.checkExpect(record.cells(), new byte[] { 0, 6, 4, 1, 2, 1, 5, 0, 6 });
+    t.checkExpect(record.moveCount(), 2);
+
+    // recording again starts the file over
+    FloodItGame game = new FloodItGame(4, 3, 7);
+    game.initBoard();
+    game.initNeighbors();
+    game.record(file);
+    t.checkExpect(file.read().moveCount(), 0);
+    t.checkExpect(file.read().boardNumber, 0);
+    game.stopRecording();
+
+    // a file damaged on disk fails to load
+    byte[] saved = Files.readAllBytes(file.path);
+    saved[GameFile.boardStart(3)] |= 15;
+    Files.write(file.path, saved);
+    t.checkException(new IOException("Saved cell 0 has color 15 of a game of 3 colors"), file,
+        "read");
+    Files.delete(file.path);
+
+    t.checkException(new IllegalStateException("Games can only be recorded from the first move"),
+        world1.game, "record", file);
+    t.checkException(
+        new IllegalArgumentException("Only games of up to 16 colors can be saved: 17"),
+        file, "create", new FloodItGame(2, 17));
+  }
+
+  // to test the constructor and the methods of GameRecord
+  void testGameRecord(Tester t) throws IOException {
+    ByteBuffer bytes = ByteBuffer.allocate(GameFile.boardStart(3) + 2 + 3);
+    bytes.putInt(GameFile.MAGIC).put((byte) 1).put((byte) 3).putInt(2).putLong(9).putInt(4)
+        .putInt(6);
+    bytes.put((byte) 1).put((byte) 2).put((byte) 3);
+    bytes.put((byte) 200).put((byte) 0).put((byte) 0);
+    bytes.put((byte) 0).put((byte) 0).put((byte) 0);
+    bytes.put((byte) 0x21).put((byte) 0x01);
+    bytes.put((byte) 2).put((byte) 0).put((byte) 2);
+
+    GameRecord record = new GameRecord(bytes);
+    t.checkExpect(record.seed, 9L);
+    t.checkExpect(record.boardNumber, 4);
+    t.checkExpect(record.size(), 4);
+    t.checkExpect(record.color(0), 1);
+    t.checkExpect(record.color(1), 2);
+    t.checkExpect(record.color(2), 1);
+    t.checkExpect(record.color(3), 0);
+    t.checkExpect(record.paletteColor(0), new Color(1, 2, 3));
+    t.checkExpect(record.paletteColor(1), new Color(200, 0, 0));
+    t.checkExpect(record.moveCount(), 3);
+    t.checkExpect(record.move(1), 0);
+
+    t.checkConstructorException(new IOException("Not a saved game"), "GameRecord",
+        ByteBuffer.allocate(30));
+    bytes.put(4, (byte) 2);
+    t.checkConstructorException(new IOException("Unknown saved game version: 2"), "GameRecord",
+        bytes);
+    bytes.put(4, (byte) 1);
+    t.checkConstructorException(new IOException("Saved game ends at byte "
+        + (GameFile.boardStart(3) + 1) + " before its board ends at byte "
+        + (GameFile.boardStart(3) + 2)), "GameRecord",
+        ByteBuffer.wrap(Arrays.copyOf(bytes.array(), GameFile.boardStart(3) + 1)));
+
+    // a damaged header, board or move log fails to load as an IOException, instead of
+    // breaking the game later
+    bytes.put(5, (byte) 0);
+    t.checkConstructorException(new IOException("Saved game has 0 colors"), "GameRecord",
+        bytes);
+    bytes.put(5, (byte) 17);
+    t.checkConstructorException(new IOException("Saved game has 17 colors"), "GameRecord",
+        bytes);
+    bytes.put(5, (byte) 3);
+    bytes.putInt(6, -2);
+    t.checkConstructorException(new IOException("Saved game has a side length of -2"),
+        "GameRecord", bytes);
+    bytes.putInt(6, 50000);
+    t.checkConstructorException(new IOException("Saved game has a side length of 50000"),
+        "GameRecord", bytes);
+    bytes.putInt(6, 2);
+    int board = GameFile.boardStart(3);
+    bytes.put(board + 1, (byte) 0x71);
+    t.checkConstructorException(new IOException("Saved cell 3 has color 7 of a game of 3 "
+        + "colors"), "GameRecord", bytes);
+    bytes.put(board + 1, (byte) 0x01);
+    bytes.put(board + 3, (byte) 200);
+    t.checkConstructorException(new IOException("Saved move 1 plays color 200 of a game of 3 "
+        + "colors"), "GameRecord", bytes);
+    bytes.put(board + 3, (byte) 0);
+    t.checkExpect(new GameRecord(bytes).move(1), 0);
+  }
+
+  // to test the methods step, finished and playAll
+  void testGameReplay(Tester t) throws IOException {
+    FloodItGame game = new FloodItGame(5, 4, 11);
+    game.initBoard();
+    game.initNeighbors();
+    GameFile file = new GameFile(Files.createTempFile("flood-it", ".game"));
+    game.record(file);
+    Strategy greedy = new GreedyAbsorbStrategy();
+    while (!game.wholeBoardFlooded()) {
+      game.play(greedy.nextColor(game));
+    }
+    game.stopRecording();
+
+    GameReplay replay = new GameReplay(file.read());
+    t.checkExpect(replay.game.maxClicksAllowed, game.maxClicksAllowed);
+    t.checkExpect(replay.game.board.floodedCount() < 25, true);
+    t.checkExpect(replay.finished(), false);
+    t.checkExpect(replay.step(), file.read().move(0));
+    t.checkExpect(replay.game.userClicksCount, 1);
+    replay.playAll();
+    t.checkExpect(replay.finished(), true);
+    t.checkExpect(replay.game.userClicksCount, game.userClicksCount);
+    t.checkExpect(replay.game.wholeBoardFlooded(), true);
+    t.checkExpect(replay.game.won(), game.won());
+    Files.delete(file.path);
+  }
+
+  // to test the method startFrom
+  void testStartFrom(Tester t) throws IOException {
+    this.initTestExamples();
+
+    GameFile file = new GameFile(Files.createTempFile("flood-it", ".game"));
+    world3.game.record(file);
+    world3.game.stopRecording();
+    FloodItGame game = new FloodItGame(2, 3, 4);
+    game.userClicksCount = 4;
+    game.startFrom(file.read());
+    t.checkExpect(game.board, world3.game.board);
+    t.checkExpect(game.floodColor, 1);
+    t.checkExpect(game.userClicksCount, 0);
+    t.checkExpect(game.maxClicksAllowed, world3.game.maxClicksAllowed);
+    t.checkExpect(game.play(2), true);
+    t.checkExpect(game.board.isFlooded(3), true);
+    Files.delete(file.path);
+  }
+
+  // to test the method resume
+  void testResume(Tester t) {
+    FloodItGame played = new FloodItGame(14, 6, 3);
+    played.initBoard();
+    played.initNeighbors();
+    played.play(2);
+    played.restart();
+    played.play(1);
+    played.play(4);
+
+    FloodItGame game = new FloodItGame(14, 6, 3);
+    game.resume(1, 40, new byte[] { 1, 4 });
+    t.checkExpect(game.board, played.board);
+    t.checkExpect(game.boardsGenerated, 2);
+    t.checkExpect(game.userClicksCount, 2);
+    t.checkExpect(game.maxClicksAllowed, 40);
+    t.checkExpect(game.history.current, 2);
+  }
+
+  // test methods for the session classes
+  // to test the methods open, session and size
+  void testOpenSession(Tester t) throws InterruptedException {
+    SessionManager manager = new SessionManager();
+    manager.open("a", 3, 7, 2);
+    t.checkExpect(manager.size(), 1);
+    t.checkExpect(manager.session("a").game, null);
+    t.checkException(new IllegalArgumentException("Session a is already open"), manager,
+        "open", "a", 3, 7, 2L);
+    t.checkException(new IllegalArgumentException("No session named b"), manager,
+        "session", "b");
+    manager.shutdown();
+  }
+
+  // to test the methods submit, play and close
+  void testSubmit(Tester t) throws InterruptedException {
+    SessionManager manager = new SessionManager();
+    manager.open("a", 14, 6, 3);
+    t.checkExpect(manager.submit("a", game -> game.userClicksCount).join(), 0);
+
+    // commands run in the order they were sent
+    CompletableFuture<Integer> last = null;
+    for (int i = 0; i < 100; i++) {
+      manager.play("a", i % 2 + 1);
+      last = manager.submit("a", game -> game.userClicksCount);
+    }
+    t.checkExpect(last.join(), 100);
+
+    CompletableFuture<Integer> failed = manager.submit("a", game -> {
+      throw new IllegalStateException("No more moves");
+    });
+    t.checkExpect(failed.handle((clicks, e) -> e.getMessage()).join(), "No more moves");
+    t.checkExpect(manager.play("a", 3).join(), true);
+
+    t.checkExpect(manager.close("a").join(), true);
+    t.checkExpect(manager.size(), 0);
+    manager.shutdown();
+  }
+
+  // to test the method playAll
+  void testSessionPlayAll(Tester t) throws InterruptedException {
+    SessionManager manager = new SessionManager();
+    manager.open("a", 14, 6, 3);
+    manager.open("b", 14, 6, 3);
+    t.checkExpect(manager.playAll("a", new int[] { 1, 1, 4, 2 }).join(), 3);
+    manager.play("b", 1);
+    manager.play("b", 4);
+    manager.play("b", 2);
+    t.checkExpect(manager.submit("a", game -> game.board).join(),
+        manager.submit("b", game -> game.board).join());
+    manager.shutdown();
+  }
+
+  // to test the methods enqueue, schedule and drain
+  void testEnqueue(Tester t) {
+    GameSession session = new GameSession("a", 3, 7, 2);
+    ArrayList<Integer> ran = new ArrayList<Integer>();
+
+    // an executor that runs each task right away drains the mailbox before returning
+    t.checkExpect(session.enqueue(() -> ran.add(1), Runnable::run).join(), true);
+    session.mailbox.add(() -> ran.add(2));
+    session.schedule(Runnable::run);
+    t.checkExpect(ran, new ArrayList<Integer>(Arrays.asList(1, 2)));
+    t.checkExpect(session.mailbox.isEmpty(), true);
+    t.checkExpect(session.draining.get(), false);
+    t.checkExpect(session.game, null);
+
+    // nothing runs while another thread is draining
+    session.draining.set(true);
+    session.enqueue(() -> ran.add(3), Runnable::run);
+    t.checkExpect(ran.size(), 2);
+    session.drain(Runnable::run);
+    t.checkExpect(ran.size(), 3);
+  }
+
+  // to test the methods awake and hibernate, and hibernateIdle
+  void testHibernate(Tester t) throws InterruptedException {
+    SessionManager manager = new SessionManager();
+    manager.open("a", 14, 6, 3);
+    manager.open("b", 14, 6, 4);
+    Strategy greedy = new GreedyAbsorbStrategy();
+    for (int i = 0; i < 5; i++) {
+      manager.submit("a", game -> game.play(game.hint(greedy))).join();
+    }
+    manager.submit("a", game -> game.undo()).join();
+    Board board = manager.submit("a", game -> game.board).join();
+    int maxClicks = manager.submit("a", game -> game.maxClicksAllowed).join();
+
+    manager.hibernateIdle(Long.MAX_VALUE).join();
+    t.checkExpect(manager.session("a").game == null, false);
+    manager.hibernateIdle(0).join();
+    GameSession session = manager.session("a");
+    t.checkExpect(session.game, null);
+    t.checkExpect(session.moves.length, 4);
+    t.checkExpect(session.boardNumber, 0);
+    t.checkExpect(session.maxClicksAllowed, maxClicks);
+    t.checkExpect(session.hibernate(), false);
+
+    // a hibernated game comes back as it was, without the move that was undone
+    t.checkExpect(manager.submit("a", game -> game.board).join(), board);
+    t.checkExpect(manager.submit("a", game -> game.userClicksCount).join(), 4);
+    t.checkExpect(manager.submit("a", game -> game.maxClicksAllowed).join(), maxClicks);
+    t.checkExpect(manager.submit("a", game -> game.history.canRedo()).join(), false);
+    t.checkExpect(manager.session("b").game, null);
+    manager.shutdown();
+  }
+
+  // to test the methods playClient, playAll and run
+  void testLoadDriver(Tester t) throws InterruptedException {
+    SessionLoadDriver driver = new SessionLoadDriver(3, 3, 3);
+    SessionManager manager = new SessionManager();
+    manager.open("a", 3, 3, 1);
+    int commands = driver.playClient(manager, "a");
+    t.checkExpect(commands % 2, 0);
+    t.checkExpect(manager.submit("a", game -> game.wholeBoardFlooded()).join(), true);
+    t.checkExpect(manager.submit("a", game -> game.userClicksCount).join(), commands / 2);
+    manager.shutdown();
+
+    t.checkExpect(driver.run().startsWith("3 sessions of 3x3, 3 colors: "), true);
+  }
+
+  // test methods for the metrics classes
+  // to test the methods of FlightRecorderMetrics, and the events they commit
+  void testFlightRecorderMetrics(Tester t) throws IOException {
+    FlightRecorderMetrics metrics = new FlightRecorderMetrics();
+    t.checkExpect(metrics.measureMove(), false);
+    t.checkExpect(metrics.measureFrame(), false);
+    t.checkExpect(metrics.allocatedBytes() > 0, true);
+
+    // nothing is committed while no recording is running
+    metrics.moved(1, 1, 1, 1);
+
+    Path file = Files.createTempFile("metrics", ".jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable(FloodMoveEvent.class);
+      recording.enable(FloodFrameEvent.class);
+      recording.enable(FloodBoardEvent.class);
+      recording.start();
+      t.checkExpect(metrics.measureMove(), true);
+      t.checkExpect(metrics.measureFrame(), true);
+      metrics.moved(12, 7, 3000, 64);
+      metrics.framed(4, 9000, 128);
+      metrics.boardMade(196, 20000, 256);
+      recording.stop();
+      recording.dump(file);
+    }
+    t.checkExpect(metrics.measureMove(), false);
+
+    // a recording with the frames turned off leaves them unmeasured
+    try (Recording recording = new Recording()) {
+      recording.enable(FloodMoveEvent.class);
+      recording.disable(FloodFrameEvent.class);
+      recording.start();
+      t.checkExpect(metrics.measureMove(), true);
+      t.checkExpect(metrics.measureFrame(), false);
+    }
+    List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+    Files.delete(file);
+    t.checkExpect(events.size(), 3);
+    for (RecordedEvent event : events) {
+      String name = event.getEventType().getName();
+      if (name.equals("floodit.Move")) {
+        t.checkExpect(event.getInt("absorbed"), 12);
+        t.checkExpect(event.getInt("frontier"), 7);
+        t.checkExpect(event.getDuration("floodTime").toNanos(), 3000L);
+        t.checkExpect(event.getLong("allocated"), 64L);
+      }
+      else if (name.equals("floodit.Frame")) {
+        t.checkExpect(event.getInt("ring"), 4);
+        t.checkExpect(event.getDuration("buildTime").toNanos(), 9000L);
+      }
+      else {
+        t.checkExpect(name, "floodit.Board");
+        t.checkExpect(event.getInt("cells"), 196);
+        t.checkExpect(event.getLong("allocated"), 256L);
+      }
+    }
+  }
+
+  // to test the constructor and the methods of SampledMetrics
+  void testSampledMetrics(Tester t) {
+    MetricsTotals totals = new MetricsTotals();
+    SampledMetrics sampled = new SampledMetrics(totals, 3);
+    t.checkExpect(sampled.measureMove(), true);
+    t.checkExpect(sampled.measureMove(), false);
+    t.checkExpect(sampled.measureMove(), false);
+    t.checkExpect(sampled.measureMove(), true);
+    t.checkExpect(sampled.movesLeft, 3);
+
+    // frames drawn between the moves are counted down apart from them
+    t.checkExpect(sampled.measureFrame(), true);
+    t.checkExpect(sampled.measureFrame(), false);
+    t.checkExpect(sampled.measureMove(), false);
+    t.checkExpect(sampled.measureFrame(), false);
+    t.checkExpect(sampled.measureFrame(), true);
+    t.checkExpect(sampled.measureMove(), false);
+    t.checkExpect(sampled.measureMove(), true);
+    t.checkExpect(sampled.framesLeft, 3);
+    t.checkExpect(sampled.allocatedBytes() > 0, true);
+
+    sampled.moved(5, 2, 100, 8);
+    sampled.framed(1, 200, 16);
+    sampled.boardMade(9, 300, 24);
+    t.checkExpect(totals.moves, 1);
+    t.checkExpect(totals.frames, 1);
+    t.checkExpect(totals.boards, 1);
+
+    t.checkExpect(new SampledMetrics(totals, 1).measureMove(), true);
+    t.checkExpect(new SampledMetrics(totals, 1).measureFrame(), true);
+    t.checkConstructorException(new IllegalArgumentException("Can't measure one in every 0"),
+        "SampledMetrics", totals, 0);
+  }
+
+  // to test the methods of MetricsTotals
+  void testMetricsTotals(Tester t) {
+    MetricsTotals totals = new MetricsTotals();
+    t.checkExpect(totals.measureMove(), true);
+    t.checkExpect(totals.measureFrame(), true);
+    t.checkExpect(totals.report(), "0 moves: 0.0 cells absorbed, 0.0 on the frontier, 0.0 ns, "
+        + "0.0 B\n0 frames, 0 waterfalling: 0.0 ns, 0.0 B\n0 boards: 0.0 ns, 0.0 B");
+
+    totals.moved(10, 4, 300, 0);
+    totals.moved(20, 6, 500, 16);
+    totals.framed(-1, 1000, 40);
+    totals.framed(3, 2000, 0);
+    totals.boardMade(196, 5000, 100);
+    t.checkExpect(totals.absorbed, 30L);
+    t.checkExpect(totals.waterfallFrames, 1);
+    t.checkExpect(totals.report(), "2 moves: 15.0 cells absorbed, 5.0 on the frontier, "
+        + "400.0 ns, 8.0 B\n2 frames, 1 waterfalling: 1500.0 ns, 20.0 B\n1 boards: 5000.0 ns, "
+        + "100.0 B");
+  }
+
+  // test methods for the StepClock class
+  // to test the constructor and the method due
+  void testStepClock(Tester t) {
+    long[] now = { 100 };
+    StepClock clock = new StepClock(() -> now[0], 10, 3);
+    t.checkExpect(clock.due(), 0);
+    now[0] = 109;
+    t.checkExpect(clock.due(), 0);
+    now[0] = 125;
+    t.checkExpect(clock.due(), 2);
+    t.checkExpect(clock.steppedTo, 120L);
+
+    // past the most steps at once the rest of the time is dropped
+    now[0] = 197;
+    t.checkExpect(clock.due(), 3);
+    t.checkExpect(clock.steppedTo, 190L);
+    now[0] = 200;
+    t.checkExpect(clock.due(), 1);
+
+    t.checkConstructorException(new IllegalArgumentException(
+        "Steps of 0 ns, 3 at a time, never move forward"), "StepClock", clock.clock, 0L, 3);
+  }
+
+  // test methods for the AllocationCounter class
+  // to test the methods countingBean and allocatedBytes
+  void testAllocationCounter(Tester t) {
+    t.checkExpect(AllocationCounter.countingBean() == AllocationCounter.THREADS, true);
+    long before = AllocationCounter.allocatedBytes();
+    int[] array = new int[1000];
+    t.checkExpect(array.length, 1000);
+    t.checkExpect(AllocationCounter.allocatedBytes() - before >= 4000, true);
+  }
+
+  // test methods for the benchmark classes
+  // to test the methods start, stop and report
+  void testBenchmarkTimer(Tester t) {
+    BenchmarkTimer timer = new BenchmarkTimer();
+    t.checkExpect(timer.report("none"),
+        "none                  0.0 ns/op          0.0 B/op");
+    timer.start();
+    timer.stop(4);
+    timer.start();
+    timer.stop(6);
+    t.checkExpect(timer.ops, 10L);
+    t.checkExpect(timer.nanos > 0, true);
+
+    timer.nanos = 25;
+    timer.bytes = 40;
+    t.checkExpect(timer.report("click"),
+        "click                 2.5 ns/op          4.0 B/op");
+  }
+
+  // to test the method cellOfColor
+  void testCellOfColor(Tester t) {
+    this.initTestExamples();
+
+    FloodItBenchmark benchmark = new FloodItBenchmark(3, 7, 1);
+    t.checkExpect(benchmark.cellOfColor(world1.game.board, 0), 0);
+    t.checkExpect(benchmark.cellOfColor(world1.game.board, 1), 3);
+    t.checkExpect(benchmark.cellOfColor(world1.game.board, 6), 1);
+  }
+
+  // to test the method positionOf
+  void testPositionOf(Tester t) {
+    this.initTestExamples();
+
+    FloodItBenchmark benchmark = new FloodItBenchmark(3, 7, 1);
+    t.checkExpect(benchmark.positionOf(world1, 0), new Posn(225, 225));
+    t.checkExpect(benchmark.positionOf(world1, 5), new Posn(275, 250));
+    t.checkExpect(world1.pressedCell(benchmark.positionOf(world1, 7)), 7);
+  }
+
+  // to test the methods run and playBoard
+  void testBenchmarkRun(Tester t) {
+    FloodItBenchmark benchmark = new FloodItBenchmark(4, 3, 2);
+    String report = benchmark.run();
+    t.checkExpect(report.startsWith("4x4, 3 colors, regions engine\ninit "), true);
+    t.checkExpect(benchmark.init.ops, 2L);
+    t.checkExpect(benchmark.click.ops, benchmark.waterfall.ops);
+    t.checkExpect(benchmark.flooded.ops, 1000 * benchmark.click.ops);
+
+    FloodItBenchmark bitboard = new FloodItBenchmark(4, 3, 2, "bitboard");
+    t.checkExpect(bitboard.run().startsWith("4x4, 3 colors, bitboard engine\ninit "), true);
+    t.checkExpect(bitboard.click.ops, benchmark.click.ops);
   }
 
   // runs the game by creating a world and calling bigBang
   void testFloodIt(Tester t) {
     FloodItWorld starterWorld = new FloodItWorld(3, 7, 2);
+    starterWorld.measure(new SampledMetrics(new FlightRecorderMetrics(), 64));
     starterWorld.initColors();
     starterWorld.initBoard();
     starterWorld.initNeighbors();
-    starterWorld.bigBang(500, 500, 25);
+    starterWorld.bigBang(500, 500, 1.0 / 60);
   }
 }
\ No newline at end of file